@@ -1,6 +1,5 @@
 package com.stone.card;
 
-import android.graphics.Rect;
 import android.os.Bundle;
 import android.os.Handler;
 import android.support.v4.app.FragmentActivity;
@@ -12,6 +11,7 @@ import android.widget.TextView;
 
 import com.bumptech.glide.Glide;
 import com.stone.card.library.CardAdapter;
+import com.stone.card.library.CardHitRegions;
 import com.stone.card.library.CardSlidePanel;
 
 import java.util.ArrayList;
@@ -94,16 +94,16 @@ public class MainActivity extends FragmentActivity {
             }
 
             @Override
-            public Rect obtainDraggableArea(View view) {
-                // 可滑动区域定制，该函数只会调用一次
+            public void obtainHitRegions(View view, CardHitRegions regions) {
+                // 点击区域定制，每次layout之后调用一次，坐标相对于卡片左上角
                 View contentView = view.findViewById(R.id.card_item_content);
                 View topLayout = view.findViewById(R.id.card_top_layout);
                 View bottomLayout = view.findViewById(R.id.card_bottom_layout);
-                int left = view.getLeft() + contentView.getPaddingLeft() + topLayout.getPaddingLeft();
-                int right = view.getRight() - contentView.getPaddingRight() - topLayout.getPaddingRight();
-                int top = view.getTop() + contentView.getPaddingTop() + topLayout.getPaddingTop();
-                int bottom = view.getBottom() - contentView.getPaddingBottom() - bottomLayout.getPaddingBottom();
-                return new Rect(left, top, right, bottom);
+                int left = contentView.getPaddingLeft() + topLayout.getPaddingLeft();
+                int right = view.getWidth() - contentView.getPaddingRight() - topLayout.getPaddingRight();
+                int top = contentView.getPaddingTop() + topLayout.getPaddingTop();
+                int bottom = view.getHeight() - contentView.getPaddingBottom() - bottomLayout.getPaddingBottom();
+                regions.add(CardHitRegions.ZONE_DRAGGABLE, left, top, right, bottom);
             }
         });
 
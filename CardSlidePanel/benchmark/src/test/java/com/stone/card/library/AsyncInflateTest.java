@@ -0,0 +1,119 @@
+package com.stone.card.library;
+
+import android.widget.TextView;
+
+import com.google.monitoring.runtime.instrumentation.AllocationRecorder;
+import com.google.monitoring.runtime.instrumentation.Sampler;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 开启异步inflate后，卡片内容（这里是simple_list_item_1的TextView）不在主线程创建；
+ * 只统计由面板代码或AsyncLayoutInflater的主线程回调发起的创建，Activity自身的View不计入
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AsyncInflateTest {
+
+    private static final int CARD_COUNT = 10;
+
+    private final CardContentSampler sampler = new CardContentSampler(Thread.currentThread());
+
+    @After
+    public void tearDown() {
+        AllocationRecorder.removeSampler(sampler);
+    }
+
+    @Test
+    public void asyncInflateKeepsCardContentOffMainThread() throws Exception {
+        AllocationRecorder.addSampler(sampler);
+        CardPanelDriver driver = new CardPanelDriver(CARD_COUNT, true, true);
+        driver.attach();
+        // 内容还在后台线程inflate，第一次layout时顶层卡片尚未就绪
+        assertFalse(driver.isFirstCardReady());
+        driver.awaitAllContent();
+        AllocationRecorder.removeSampler(sampler);
+
+        assertTrue(driver.isFirstCardReady());
+        assertEquals(sampler.mainThreadInflations.toString(), 0, sampler.mainThreadInflations.size());
+    }
+
+    @Test
+    public void swipeQueuedBeforeContentReadyRunsAfterInflate() throws Exception {
+        CardPanelDriver driver = new CardPanelDriver(CARD_COUNT, true, true);
+        driver.attach();
+        assertFalse(driver.isFirstCardReady());
+        // 顶层卡片的内容还没inflate完成，飞出先排队
+        driver.panel.swipeRight();
+        long deadline = System.currentTimeMillis() + CardPanelDriver.CONTENT_TIMEOUT_MS;
+        while (!driver.topCard().isContentReady() || !"card 1".equals(driver.topCardText())) {
+            assertTrue("queued swipe dropped", System.currentTimeMillis() < deadline);
+            Thread.sleep(0, 100000);
+            driver.frame();
+        }
+    }
+
+    @Test
+    public void syncInflateRunsOnMainThread() throws Exception {
+        // 校验统计方法本身有效：同步模式下每张卡片的内容都在主线程创建
+        AllocationRecorder.addSampler(sampler);
+        CardPanelDriver driver = new CardPanelDriver(CARD_COUNT);
+        driver.attach();
+        AllocationRecorder.removeSampler(sampler);
+
+        assertTrue(driver.isAllContentReady());
+        assertEquals(driver.panel.getChildCount(), sampler.mainThreadInflations.size());
+    }
+
+    /**
+     * 记录主线程上、由卡片inflate发起的TextView创建
+     */
+    private static class CardContentSampler implements Sampler {
+
+        private static final String LIBRARY_PACKAGE = "com.stone.card.library.";
+        private static final String ASYNC_INFLATER = "android.support.v4.view.AsyncLayoutInflater";
+
+        private final Thread mainThread;
+        final List<String> mainThreadInflations = new ArrayList<>();
+        // 反射创建的View可能被记录两次（Constructor.newInstance以及JVM生成的构造器访问类），按对象去重
+        private final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+        CardContentSampler(Thread mainThread) {
+            this.mainThread = mainThread;
+        }
+
+        @Override
+        public void sampleAllocation(int count, String desc, Object newObj, long size) {
+            if (!(newObj instanceof TextView) || Thread.currentThread() != mainThread || !seen.add(newObj)) {
+                return;
+            }
+            for (StackTraceElement element : new Throwable().getStackTrace()) {
+                if (isCardInflation(element.getClassName())) {
+                    mainThreadInflations.add(desc + " at " + element);
+                    return;
+                }
+            }
+        }
+
+        private static boolean isCardInflation(String className) {
+            if (className.startsWith(ASYNC_INFLATER)) {
+                return true;
+            }
+            return className.startsWith(LIBRARY_PACKAGE)
+                    && !className.startsWith(CardPanelDriver.class.getName())
+                    && !className.startsWith(AsyncInflateTest.class.getName());
+        }
+    }
+}
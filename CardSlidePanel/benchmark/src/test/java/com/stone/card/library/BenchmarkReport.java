@@ -0,0 +1,42 @@
+package com.stone.card.library;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * 基准测试结果：打印到控制台，同时写入build/reports/benchmark/类名-测试名.txt，便于对比改动前后的基线
+ */
+class BenchmarkReport {
+
+    private final String name;
+    private final StringBuilder lines = new StringBuilder();
+
+    BenchmarkReport(Class<?> benchmarkClass, String testName) {
+        this.name = benchmarkClass.getSimpleName() + "-" + testName;
+    }
+
+    void add(String format, Object... args) {
+        String line = String.format(Locale.US, format, args);
+        System.out.println(name + " | " + line);
+        lines.append(line).append('\n');
+    }
+
+    /**
+     * 写入报告文件，覆盖上一次的结果
+     */
+    void write() throws IOException {
+        File dir = new File(System.getProperty("benchmark.reportDir", "build/reports/benchmark"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+        FileWriter writer = new FileWriter(new File(dir, name + ".txt"));
+        try {
+            writer.write(lines.toString());
+        } finally {
+            writer.close();
+        }
+        lines.setLength(0);
+    }
+}
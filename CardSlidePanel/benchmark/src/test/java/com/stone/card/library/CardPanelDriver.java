@@ -0,0 +1,275 @@
+package com.stone.card.library;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * 在Robolectric中驱动CardSlidePanel：搭建挂在窗口上的面板，用合成的MotionEvent完成拖动、松手，
+ * 并手动推进主线程的动画帧。主线程looper处于暂停状态，只有调用{@link #frame()}、{@link #settle()}时才执行消息
+ */
+class CardPanelDriver {
+
+    static final int PANEL_WIDTH = 1080;
+    static final int PANEL_HEIGHT = 1600;
+    static final int MOVE_STEPS = 12; // 一次拖动的MOVE事件数，每个MOVE之后推进一帧
+    private static final int EVENT_INTERVAL_MS = 16;
+    static final int CONTENT_TIMEOUT_MS = 10000;
+
+    final Activity activity;
+    final CardSlidePanel panel;
+    final TextCardAdapter adapter;
+    private final FrameLayout container;
+    private long eventTime;
+    private float lastX, lastY; // 上一个touch事件的位置
+    long touchNanos; // 所有touch周期（事件分发+本帧提交）的累计耗时
+    int touchCount;
+    int maxLinkagePerTouch; // 单个touch周期内的最多联动次数
+    final long setAdapterNanos; // setAdapter以及预热的耗时
+
+    CardPanelDriver(int cardCount) {
+        this(cardCount, false, false);
+    }
+
+    /**
+     * @param asyncInflate 是否开启异步inflate
+     * @param prewarm      是否在面板layout之前预热卡片View
+     */
+    CardPanelDriver(int cardCount, boolean asyncInflate, boolean prewarm) {
+        ShadowLooper.pauseMainLooper();
+        activity = Robolectric.setupActivity(Activity.class);
+        container = new FrameLayout(activity);
+        activity.setContentView(container);
+
+        panel = new CardSlidePanel(activity);
+        panel.setAsyncInflateEnabled(asyncInflate);
+        adapter = new TextCardAdapter(cardCount);
+        long startNanos = System.nanoTime();
+        panel.setAdapter(adapter);
+        if (prewarm) {
+            panel.prewarmCardViews();
+        }
+        setAdapterNanos = System.nanoTime() - startNanos;
+        eventTime = SystemClock.uptimeMillis();
+    }
+
+    /**
+     * 把面板加入窗口并完成第一次measure、layout，返回时绑定监听已经执行
+     */
+    void attach() {
+        container.addView(panel, new FrameLayout.LayoutParams(PANEL_WIDTH, PANEL_HEIGHT));
+        // 窗口的traversal是post出去的，执行之后面板才真正attach，才会监听adapter的数据变化
+        frame();
+        layout();
+    }
+
+    void layout() {
+        panel.measure(View.MeasureSpec.makeMeasureSpec(PANEL_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(PANEL_HEIGHT, View.MeasureSpec.EXACTLY));
+        panel.layout(0, 0, PANEL_WIDTH, PANEL_HEIGHT);
+        panel.getViewTreeObserver().dispatchOnGlobalLayout();
+        // 绑定之后新添加的卡片还需要一次layout
+        panel.measure(View.MeasureSpec.makeMeasureSpec(PANEL_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(PANEL_HEIGHT, View.MeasureSpec.EXACTLY));
+        panel.layout(0, 0, PANEL_WIDTH, PANEL_HEIGHT);
+    }
+
+    /**
+     * 执行当前已到期的主线程消息：本帧的位置提交、联动；
+     * Robolectric的Choreographer每次取帧时间都前进一帧，已经开始的动画会在这里连续跑完
+     */
+    void frame() {
+        ShadowLooper.runUiThreadTasks();
+    }
+
+    /**
+     * 执行所有主线程消息，直到飞出动画结束、卡片重排完成
+     */
+    void settle() {
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    /**
+     * 在顶层卡片中部按下、逐帧向右拖过面板宽度的60%、松手，不等待飞出动画
+     */
+    void drag() {
+        long downTime = dragAndHold();
+        touch(downTime, MotionEvent.ACTION_UP, lastX, lastY);
+    }
+
+    /**
+     * 与{@link #drag()}相同的按下、拖动，但手指不抬起
+     *
+     * @return 本次按下的downTime
+     */
+    long dragAndHold() {
+        View topView = topCard();
+        float x = PANEL_WIDTH / 2;
+        float y = topView.getTop() + topView.getHeight() / 2;
+        float distance = PANEL_WIDTH * 0.6f;
+        long downTime = eventTime;
+        touch(downTime, MotionEvent.ACTION_DOWN, x, y);
+        for (int i = 1; i <= MOVE_STEPS; i++) {
+            touch(downTime, MotionEvent.ACTION_MOVE, x + distance * i / MOVE_STEPS, y);
+        }
+        return downTime;
+    }
+
+    CardItemView topCard() {
+        return (CardItemView) panel.getChildAt(panel.getChildCount() - 1);
+    }
+
+    /**
+     * 顶层卡片的内容已经inflate、添加，并且绑定了第一条数据
+     */
+    boolean isFirstCardReady() {
+        if (panel.getChildCount() == 0 || !topCard().isContentReady()) {
+            return false;
+        }
+        return adapter.getItem(0).equals(topCardText());
+    }
+
+    String topCardText() {
+        TextView textView = (TextView) topCard().getChildAt(0);
+        return textView.getText().toString();
+    }
+
+    boolean isAllContentReady() {
+        for (int i = 0; i < panel.getChildCount(); i++) {
+            if (!((CardItemView) panel.getChildAt(i)).isContentReady()) {
+                return false;
+            }
+        }
+        return isFirstCardReady();
+    }
+
+    /**
+     * 等待后台线程inflate的结果：反复执行主线程消息，直到顶层卡片就绪
+     *
+     * @return 主线程执行这些消息的累计耗时
+     */
+    long awaitFirstCard() throws InterruptedException {
+        return awaitContent(false);
+    }
+
+    /**
+     * 等待所有卡片的内容就绪
+     */
+    long awaitAllContent() throws InterruptedException {
+        return awaitContent(true);
+    }
+
+    private long awaitContent(boolean allCards) throws InterruptedException {
+        long mainThreadNanos = 0;
+        long deadline = System.currentTimeMillis() + CONTENT_TIMEOUT_MS;
+        while (!(allCards ? isAllContentReady() : isFirstCardReady())) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("card content not ready after " + CONTENT_TIMEOUT_MS + "ms");
+            }
+            Thread.sleep(0, 100000);
+            long startNanos = System.nanoTime();
+            frame();
+            mainThreadNanos += System.nanoTime() - startNanos;
+        }
+        return mainThreadNanos;
+    }
+
+    /**
+     * 一个touch周期：dispatchTouchEvent -> onInterceptTouchEvent/onTouchEvent，以及随后这一帧的位置提交；
+     * 松手之后的帧属于飞出动画，不计入touch周期
+     */
+    private void touch(long downTime, int action, float x, float y) {
+        lastX = x;
+        lastY = y;
+        eventTime += EVENT_INTERVAL_MS;
+        MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, x, y, 0);
+        int commitCount = panel.getLinkageCommitCount();
+        long startNanos = System.nanoTime();
+        panel.dispatchTouchEvent(event);
+        if (action != MotionEvent.ACTION_UP) {
+            frame();
+        }
+        touchNanos += System.nanoTime() - startNanos;
+        touchCount++;
+        maxLinkagePerTouch = Math.max(maxLinkagePerTouch, panel.getLinkageCommitCount() - commitCount);
+        event.recycle();
+    }
+
+    void resetTouchStats() {
+        touchNanos = 0;
+        touchCount = 0;
+        maxLinkagePerTouch = 0;
+    }
+
+    /**
+     * 完整的一次滑动：拖动、松手、飞出、重排
+     */
+    void swipe() {
+        drag();
+        settle();
+    }
+
+    /**
+     * 卡片内容为系统自带的单行文本，bindView只设置预先生成的文字
+     */
+    static class TextCardAdapter extends CardAdapter {
+
+        private String[] labels = new String[0];
+        private int count = 0;
+        int bindCount = 0;
+
+        TextCardAdapter(int count) {
+            setCount(count);
+        }
+
+        /**
+         * 改变数据条数，已有的数据保持不变，调用者负责通知面板
+         */
+        void setCount(int count) {
+            if (count > labels.length) {
+                String[] newLabels = new String[count];
+                System.arraycopy(labels, 0, newLabels, 0, labels.length);
+                for (int i = labels.length; i < count; i++) {
+                    newLabels[i] = "card " + i;
+                }
+                labels = newLabels;
+            }
+            this.count = count;
+        }
+
+        @Override
+        public int getLayoutId() {
+            return android.R.layout.simple_list_item_1;
+        }
+
+        @Override
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public void bindView(View view, int index) {
+            bindCount++;
+            TextView textView = (TextView) ((ViewGroup) view).getChildAt(0);
+            textView.setText(labels[index]);
+        }
+
+        @Override
+        public void unbindView(View view, int index) {
+            TextView textView = (TextView) ((ViewGroup) view).getChildAt(0);
+            textView.setText("");
+        }
+
+        @Override
+        public Object getItem(int index) {
+            return labels[index];
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.stone.card.library;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * animToSide、processLinkageView中纯数学部分的JVM微基准，
+ * 修改这些热点路径之前先跑一遍记下基线：gradlew :benchmark:testDebugUnitTest -Pbenchmark
+ */
+public class CardStackMathBenchmark {
+
+    private static final int WARMUP_ROUNDS = 200000;
+    private static final int MEASURE_ROUNDS = 2000000;
+
+    private final int[] outPos = new int[2];
+    private int sink; // 防止JIT把计算优化掉
+
+    @Test
+    public void benchmarkLinkage() throws Exception {
+        runLinkage(WARMUP_ROUNDS);
+        long start = System.nanoTime();
+        runLinkage(MEASURE_ROUNDS);
+        report("linkage", "processLinkageView math", System.nanoTime() - start, MEASURE_ROUNDS);
+    }
+
+    @Test
+    public void benchmarkVanishTarget() throws Exception {
+        runVanishTarget(WARMUP_ROUNDS);
+        long start = System.nanoTime();
+        runVanishTarget(MEASURE_ROUNDS);
+        report("vanishTarget", "animToSide math", System.nanoTime() - start, MEASURE_ROUNDS);
+    }
+
+    private void runLinkage(int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            float rate = CardStackMath.linkageRate(i % 700);
+            for (int level = 1; level < 3; level++) {
+                float levelRate = CardStackMath.levelRate(rate, level);
+                sink += CardStackMath.linkageOffset(40, level, levelRate);
+                sink += (int) (CardStackMath.linkageScale(0.08f, level, levelRate) * 100);
+            }
+        }
+    }
+
+    private void runVanishTarget(int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            int xvel = (i % 4001) - 2000;
+            int left = (i % 1201) - 600;
+            sink += CardStackMath.computeVanishTarget(left, i % 300, 40, 30,
+                    xvel, xvel / 3, 1000, 1080, 1600, outPos);
+            sink += outPos[0] + outPos[1];
+        }
+    }
+
+    private void report(String testName, String name, long costNanos, int rounds) throws Exception {
+        double nsPerOp = costNanos / (double) rounds;
+        BenchmarkReport report = new BenchmarkReport(CardStackMathBenchmark.class, testName);
+        report.add("%s: %.2f ns/op over %d rounds (sink=%d)", name, nsPerOp, rounds, sink);
+        report.write();
+        assertTrue(nsPerOp > 0);
+    }
+}
@@ -0,0 +1,39 @@
+package com.stone.card.library;
+
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 推迟绑定只用于底部备用的卡片：露出的卡片在数据变化时立即绑定，不能先显示旧内容或者空白。
+ * notifyDataSetChanged之后不执行主线程消息：卡片渐显动画带startDelay，在暂停的looper里永远不会到期
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DeferredBindTest {
+
+    private static final int VISIBLE_COUNT = 3;
+
+    @Test
+    public void visibleCardsBindImmediatelyOnDataLoad() throws Exception {
+        CardPanelDriver driver = new CardPanelDriver(0);
+        driver.attach();
+
+        driver.adapter.setCount(10);
+        driver.adapter.notifyDataSetChanged();
+        for (int level = 0; level < VISIBLE_COUNT; level++) {
+            assertEquals("card " + level, cardText(driver, level));
+        }
+        // 备用的卡片仍推迟到后续帧绑定
+        assertEquals("", cardText(driver, VISIBLE_COUNT));
+    }
+
+    private static String cardText(CardPanelDriver driver, int level) {
+        ViewGroup itemView = (ViewGroup) driver.panel.getChildAt(driver.panel.getChildCount() - 1 - level);
+        return ((TextView) itemView.getChildAt(0)).getText().toString();
+    }
+}
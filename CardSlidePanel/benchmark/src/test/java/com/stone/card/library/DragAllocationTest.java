@@ -0,0 +1,148 @@
+package com.stone.card.library;
+
+import com.google.monitoring.runtime.instrumentation.AllocationRecorder;
+import com.google.monitoring.runtime.instrumentation.Sampler;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 预热之后，完整的拖动、松手、飞出、重排过程中面板代码不再分配对象。
+ * 依赖allocation instrumenter作为java agent记录每一次分配；
+ * 分配点（跳过JDK、support库等被面板直接调用的库）落在面板代码里才计入，
+ * Robolectric、framework自身的分配不计入
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DragAllocationTest {
+
+    private static final int WARMUP_SWIPES = 10;
+    private static final int MEASURE_SWIPES = 20;
+
+    private final LibraryAllocationSampler sampler = new LibraryAllocationSampler();
+
+    @After
+    public void tearDown() {
+        AllocationRecorder.removeSampler(sampler);
+    }
+
+    @Test
+    public void swipeAfterWarmupDoesNotAllocate() throws Exception {
+        CardPanelDriver driver = new CardPanelDriver(WARMUP_SWIPES + MEASURE_SWIPES + 10);
+        driver.attach();
+        assertSwipesDoNotAllocate(driver);
+    }
+
+    @Test
+    public void predictiveTrackingAndPropertyExitDoNotAllocate() throws Exception {
+        CardPanelDriver driver = new CardPanelDriver(WARMUP_SWIPES + MEASURE_SWIPES + 10);
+        driver.panel.setDragTrackingMode(CardSlidePanel.DRAG_TRACKING_PREDICTIVE);
+        driver.panel.setExitMode(CardSlidePanel.EXIT_MODE_PROPERTY);
+        driver.attach();
+        assertSwipesDoNotAllocate(driver);
+    }
+
+    @Test
+    public void relayoutBetweenSwipesDoesNotAllocate() throws Exception {
+        // 图片加载等触发的layout会让点击区域失效，下次按下时复用原来的对象重新填充
+        CardPanelDriver driver = new CardPanelDriver(WARMUP_SWIPES + MEASURE_SWIPES + 10);
+        driver.attach();
+        assertSwipesDoNotAllocate(driver, true);
+    }
+
+    private void assertSwipesDoNotAllocate(CardPanelDriver driver) {
+        assertSwipesDoNotAllocate(driver, false);
+    }
+
+    private void assertSwipesDoNotAllocate(CardPanelDriver driver, boolean relayout) {
+        for (int i = 0; i < WARMUP_SWIPES; i++) {
+            swipe(driver, relayout);
+        }
+
+        AllocationRecorder.addSampler(sampler);
+        for (int i = 0; i < MEASURE_SWIPES; i++) {
+            swipe(driver, relayout);
+        }
+        AllocationRecorder.removeSampler(sampler);
+
+        if (sampler.allocations.size() > 0) {
+            fail(sampler.allocations.size() + " allocations in " + MEASURE_SWIPES + " swipes, first at:\n"
+                    + sampler.allocations.get(0));
+        }
+    }
+
+    private static void swipe(CardPanelDriver driver, boolean relayout) {
+        if (relayout) {
+            driver.layout();
+        }
+        driver.swipe();
+    }
+
+    @Test
+    public void samplerSeesLibraryAllocations() throws Exception {
+        // 校验统计方法本身有效：面板代码里的分配确实能被记录
+        AllocationRecorder.addSampler(sampler);
+        new CardHitRegions().add(CardHitRegions.ZONE_DRAGGABLE, 0, 0, 1, 1);
+        AllocationRecorder.removeSampler(sampler);
+        assertTrue(sampler.allocations.size() > 0);
+    }
+
+    /**
+     * 只记录分配点在面板代码中的分配
+     */
+    private static class LibraryAllocationSampler implements Sampler {
+
+        private static final String LIBRARY_PACKAGE = "com.stone.card.library.";
+        private static final String[] PASS_THROUGH_PREFIXES = {
+                "java.", "sun.", "com.google.monitoring.", "android.support.", "com.facebook.rebound."
+        };
+
+        final List<String> allocations = new ArrayList<>();
+
+        @Override
+        public void sampleAllocation(int count, String desc, Object newObj, long size) {
+            StackTraceElement[] stack = new Throwable().getStackTrace();
+            // stack[0]是本方法
+            for (int i = 1; i < stack.length; i++) {
+                String className = stack[i].getClassName();
+                if (isPassThrough(className)) {
+                    continue;
+                }
+                if (isLibraryClass(className)) {
+                    allocations.add(describe(desc, stack));
+                }
+                return;
+            }
+        }
+
+        private static boolean isPassThrough(String className) {
+            for (String prefix : PASS_THROUGH_PREFIXES) {
+                if (className.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isLibraryClass(String className) {
+            return className.startsWith(LIBRARY_PACKAGE)
+                    && !className.startsWith(CardPanelDriver.class.getName())
+                    && !className.startsWith(DragAllocationTest.class.getName());
+        }
+
+        private static String describe(String desc, StackTraceElement[] stack) {
+            StringBuilder builder = new StringBuilder(desc);
+            for (int i = 0; i < stack.length && i < 16; i++) {
+                builder.append("\n    at ").append(stack[i]);
+            }
+            return builder.toString();
+        }
+    }
+}
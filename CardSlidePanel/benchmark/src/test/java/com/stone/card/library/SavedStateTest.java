@@ -0,0 +1,96 @@
+package com.stone.card.library;
+
+import android.os.Parcelable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 保存、恢复显示位置：恢复时数据可能已经就绪，也可能之后才通过notifyDataSetChanged分批加载回来。
+ * notifyDataSetChanged之后不执行主线程消息：卡片渐显动画带startDelay，在暂停的looper里永远不会到期；
+ * 顶层卡片的绑定和onShow都是同步完成的
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SavedStateTest {
+
+    private static final int SAVED_SHOWING = 3;
+
+    @Test
+    public void restoreBeforeLayoutWithDataReady() throws Exception {
+        Parcelable state = savedStateAfterSwipes(SAVED_SHOWING);
+
+        CardPanelDriver driver = new CardPanelDriver(10);
+        driver.panel.onRestoreInstanceState(state);
+        driver.attach();
+
+        assertEquals("card " + SAVED_SHOWING, driver.topCardText());
+    }
+
+    @Test
+    public void restoreThenLoadDataWithNotifyDataSetChanged() throws Exception {
+        Parcelable state = savedStateAfterSwipes(SAVED_SHOWING);
+
+        // 与demo相同：先以空数据绑定、恢复，数据稍后加载并notifyDataSetChanged
+        CardPanelDriver driver = new CardPanelDriver(0);
+        List<Integer> shown = recordShow(driver.panel);
+        driver.attach();
+        driver.panel.onRestoreInstanceState(state);
+        driver.adapter.setCount(6);
+        driver.adapter.notifyDataSetChanged();
+
+        assertEquals("card " + SAVED_SHOWING, driver.topCardText());
+        assertEquals(SAVED_SHOWING, (int) shown.get(shown.size() - 1));
+    }
+
+    @Test
+    public void restoreAppliedOnceAppendedDataReachesSavedPosition() throws Exception {
+        Parcelable state = savedStateAfterSwipes(SAVED_SHOWING);
+
+        CardPanelDriver driver = new CardPanelDriver(0);
+        List<Integer> shown = recordShow(driver.panel);
+        driver.attach();
+        driver.panel.onRestoreInstanceState(state);
+
+        // 第一页还没加载到恢复的位置，先从头显示
+        driver.adapter.setCount(2);
+        driver.adapter.notifyDataSetChanged();
+        assertEquals("card 0", driver.topCardText());
+
+        // 第二页追加之后跳到恢复的位置
+        driver.adapter.setCount(6);
+        driver.adapter.notifyDataSetChanged();
+        assertEquals("card " + SAVED_SHOWING, driver.topCardText());
+        assertEquals(SAVED_SHOWING, (int) shown.get(shown.size() - 1));
+    }
+
+    private static Parcelable savedStateAfterSwipes(int swipes) {
+        CardPanelDriver driver = new CardPanelDriver(10);
+        driver.attach();
+        for (int i = 0; i < swipes; i++) {
+            driver.swipe();
+        }
+        assertEquals("card " + swipes, driver.topCardText());
+        return driver.panel.onSaveInstanceState();
+    }
+
+    private static List<Integer> recordShow(CardSlidePanel panel) {
+        final List<Integer> shown = new ArrayList<>();
+        panel.setCardSwitchListener(new CardSlidePanel.CardSwitchListener() {
+            @Override
+            public void onShow(int index) {
+                shown.add(index);
+            }
+
+            @Override
+            public void onCardVanish(int index, int type) {
+            }
+        });
+        return shown;
+    }
+}
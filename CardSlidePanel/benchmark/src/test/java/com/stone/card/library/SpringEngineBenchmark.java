@@ -0,0 +1,213 @@
+package com.stone.card.library;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.SimpleSpringListener;
+import com.facebook.rebound.Spring;
+import com.facebook.rebound.SpringConfig;
+import com.facebook.rebound.SpringLooper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 松手回弹时每帧的spring推进耗时：面板共享一个SpringSystem、每帧只联动一次（现在），
+ * 对比每张卡片各自一个SpringSystem、X/Y每次更新都联动（改动之前）。
+ * Robolectric下rebound的Choreographer循环取不到前进的时钟，这里两种引擎都由测试按16ms手动推进，
+ * 主线程looper保持暂停，不执行面板原本post出去的帧回调
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SpringEngineBenchmark {
+
+    private static final int CARD_COUNT = 10;
+    private static final int WARMUP_SNAPS = 50;
+    private static final int MEASURE_SNAPS = 300;
+    private static final double FRAME_MS = 16;
+    private static final int RELEASE_DX = 300, RELEASE_DY = 120; // 松手时卡片偏离中心的距离
+
+    @Test
+    public void benchmarkSnapBackFrameTime() throws Exception {
+        CardPanelDriver driver = new CardPanelDriver(CARD_COUNT);
+        driver.attach();
+        CardItemView topView = (CardItemView) driver.panel.getChildAt(driver.panel.getChildCount() - 1);
+        PerCardSpringEngine perCardEngine = new PerCardSpringEngine(driver.panel);
+
+        FrameStats shared = new FrameStats();
+        FrameStats perCard = new FrameStats();
+        for (int i = 0; i < WARMUP_SNAPS; i++) {
+            snapBackShared(driver.panel, topView, new FrameStats());
+            snapBackPerCard(perCardEngine, topView, new FrameStats());
+        }
+        for (int i = 0; i < MEASURE_SNAPS; i++) {
+            snapBackShared(driver.panel, topView, shared);
+            snapBackPerCard(perCardEngine, topView, perCard);
+        }
+
+        BenchmarkReport report = new BenchmarkReport(SpringEngineBenchmark.class, "snapBackFrameTime");
+        report.add("shared SpringSystem, one linkage per frame: %s", shared);
+        report.add("SpringSystem per card, linkage per spring update: %s", perCard);
+        report.write();
+
+        // 共享引擎每帧最多一次联动，旧引擎X、Y各联动一次
+        assertTrue(shared.maxLinkagePerFrame <= 1);
+        assertTrue(perCard.maxLinkagePerFrame >= 2);
+        assertTrue(shared.linkagePasses < perCard.linkagePasses);
+    }
+
+    /**
+     * 现在的引擎：卡片的spring挂在面板共享的SpringSystem上，积分结束后面板统一提交、联动
+     */
+    private static void snapBackShared(CardSlidePanel panel, CardItemView topView, FrameStats stats) {
+        int centerX = topView.getLeft(), centerY = topView.getTop();
+        topView.setScreenX(centerX + RELEASE_DX);
+        topView.setScreenY(centerY + RELEASE_DY);
+        topView.animTo(centerX, centerY);
+
+        BaseSpringSystem springSystem = panel.getSpringSystem();
+        while (!springSystem.getIsIdle()) {
+            int commitCount = panel.getLinkageCommitCount();
+            long startNanos = System.nanoTime();
+            springSystem.loop(FRAME_MS);
+            stats.addFrame(System.nanoTime() - startNanos, panel.getLinkageCommitCount() - commitCount);
+        }
+        stats.snaps++;
+        assertBackToCenter(topView, centerX, centerY);
+    }
+
+    /**
+     * 改动之前的引擎：每张卡片各自推进自己的SpringSystem
+     */
+    private static void snapBackPerCard(PerCardSpringEngine engine, CardItemView topView, FrameStats stats) {
+        int centerX = topView.getLeft(), centerY = topView.getTop();
+        topView.setScreenX(centerX + RELEASE_DX);
+        topView.setScreenY(centerY + RELEASE_DY);
+        engine.animTo(topView, centerX, centerY);
+
+        while (!engine.isIdle()) {
+            int linkageCount = engine.linkageCount;
+            long startNanos = System.nanoTime();
+            engine.loop(FRAME_MS);
+            stats.addFrame(System.nanoTime() - startNanos, engine.linkageCount - linkageCount);
+        }
+        stats.snaps++;
+        assertBackToCenter(topView, centerX, centerY);
+    }
+
+    private static void assertBackToCenter(CardItemView topView, int centerX, int centerY) {
+        assertEquals(centerX, topView.getLeft());
+        assertEquals(centerY, topView.getTop());
+    }
+
+    /**
+     * 还原改动之前CardItemView.initSpring的做法：每张卡片一个SpringSystem，
+     * X、Y的spring每次更新都直接移动卡片并调用onViewPosChanged做一次联动
+     */
+    private static class PerCardSpringEngine {
+
+        private final CardSlidePanel panel;
+        private final BaseSpringSystem[] springSystems;
+        private final Spring[] springXs, springYs;
+        int linkageCount = 0;
+
+        PerCardSpringEngine(final CardSlidePanel panel) {
+            this.panel = panel;
+            int cardCount = panel.getChildCount();
+            springSystems = new BaseSpringSystem[cardCount];
+            springXs = new Spring[cardCount];
+            springYs = new Spring[cardCount];
+
+            SpringConfig springConfig = SpringConfig.fromBouncinessAndSpeed(15, 20);
+            for (int i = 0; i < cardCount; i++) {
+                final CardItemView itemView = (CardItemView) panel.getChildAt(i);
+                springSystems[i] = new BaseSpringSystem(new ManualLooper());
+                springXs[i] = springSystems[i].createSpring().setSpringConfig(springConfig);
+                springYs[i] = springSystems[i].createSpring().setSpringConfig(springConfig);
+
+                springXs[i].addListener(new SimpleSpringListener() {
+                    @Override
+                    public void onSpringUpdate(Spring spring) {
+                        itemView.setScreenX((int) spring.getCurrentValue());
+                        panel.onViewPosChanged(itemView);
+                        linkageCount++;
+                    }
+                });
+                springYs[i].addListener(new SimpleSpringListener() {
+                    @Override
+                    public void onSpringUpdate(Spring spring) {
+                        itemView.setScreenY((int) spring.getCurrentValue());
+                        panel.onViewPosChanged(itemView);
+                        linkageCount++;
+                    }
+                });
+            }
+        }
+
+        void animTo(CardItemView itemView, int xPos, int yPos) {
+            int index = panel.indexOfChild(itemView);
+            springXs[index].setCurrentValue(itemView.getLeft());
+            springYs[index].setCurrentValue(itemView.getTop());
+            springXs[index].setEndValue(xPos);
+            springYs[index].setEndValue(yPos);
+        }
+
+        /**
+         * 一个vsync：每个SpringSystem各自的Choreographer回调都要执行一次
+         */
+        void loop(double ellapsedMillis) {
+            for (BaseSpringSystem springSystem : springSystems) {
+                if (!springSystem.getIsIdle()) {
+                    springSystem.loop(ellapsedMillis);
+                }
+            }
+        }
+
+        boolean isIdle() {
+            for (BaseSpringSystem springSystem : springSystems) {
+                if (!springSystem.getIsIdle()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 不向Choreographer注册，帧由测试调用loop推进
+     */
+    private static class ManualLooper extends SpringLooper {
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    private static class FrameStats {
+
+        int snaps = 0;
+        int frames = 0;
+        long frameNanos = 0;
+        int linkagePasses = 0;
+        int maxLinkagePerFrame = 0;
+
+        void addFrame(long nanos, int linkage) {
+            frames++;
+            frameNanos += nanos;
+            linkagePasses += linkage;
+            maxLinkagePerFrame = Math.max(maxLinkagePerFrame, linkage);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.0f ns/frame, %.1f frames/snap-back, %.2f linkage passes/frame",
+                    frameNanos / (double) frames, frames / (double) snaps,
+                    linkagePasses / (double) frames);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.stone.card.library;
+
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 下层卡片随顶层卡片联动：一次滑动结束后，每一层都要落到上一层原来的位置和大小；
+ * 拖动中每帧只联动一次；拖动被打断时，整个卡片堆回到拖动之前的状态
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StackLinkageTest {
+
+    private static final int CARD_COUNT = 40;
+    private static final int DEEP_STACK = 20; // 每深一层联动起步晚0.1，最深一层需要2.9倍的联动距离才能靠拢到位
+
+    @Test
+    public void deepLevelsSettleAfterSwipe() throws Exception {
+        CardPanelDriver driver = new CardPanelDriver(CARD_COUNT);
+        driver.panel.setStackDepth(DEEP_STACK, 1);
+        driver.attach();
+
+        int[] tops = new int[DEEP_STACK];
+        float[] scales = new float[DEEP_STACK];
+        for (int level = 0; level < DEEP_STACK; level++) {
+            View itemView = cardAtLevel(driver, level);
+            tops[level] = itemView.getTop();
+            scales[level] = itemView.getScaleX();
+        }
+
+        driver.swipe();
+
+        for (int level = 0; level < DEEP_STACK; level++) {
+            View itemView = cardAtLevel(driver, level);
+            assertEquals("top of level " + level, tops[level], itemView.getTop());
+            assertEquals("scale of level " + level, scales[level], itemView.getScaleX(), 1e-4f);
+        }
+        // 原来备用的卡片补上了最底层
+        assertEquals(1f, cardAtLevel(driver, DEEP_STACK - 1).getAlpha(), 1e-4f);
+    }
+
+    @Test
+    public void dragCommitsOneLinkagePerFrame() throws Exception {
+        CardPanelDriver driver = new CardPanelDriver(CARD_COUNT);
+        driver.attach();
+        int commitCount = driver.panel.getLinkageCommitCount();
+
+        // 每个MOVE事件之后推进一帧，拖动中的多个位置变化合并到这一帧提交
+        driver.dragAndHold();
+
+        assertTrue(driver.panel.getLinkageCommitCount() > commitCount);
+        assertEquals(1, driver.maxLinkagePerTouch);
+    }
+
+    @Test
+    public void interruptedPredictiveDragReturnsToCenter() throws Exception {
+        CardPanelDriver driver = new CardPanelDriver(CARD_COUNT);
+        driver.panel.setDragTrackingMode(CardSlidePanel.DRAG_TRACKING_PREDICTIVE);
+        driver.attach();
+        View topView = driver.topCard();
+        int left = topView.getLeft(), top = topView.getTop();
+        int secondTop = cardAtLevel(driver, 1).getTop();
+
+        driver.dragAndHold();
+        // 拖动中窗口不可见：ViewDragHelper.abort不会回调onViewReleased
+        driver.panel.dispatchWindowVisibilityChanged(View.GONE);
+        driver.settle();
+
+        assertEquals(left, topView.getLeft());
+        assertEquals(top, topView.getTop());
+        assertEquals(0f, topView.getTranslationX(), 0f);
+        assertEquals(0f, topView.getTranslationY(), 0f);
+        assertEquals(secondTop, cardAtLevel(driver, 1).getTop());
+    }
+
+    private static View cardAtLevel(CardPanelDriver driver, int level) {
+        return driver.panel.getChildAt(driver.panel.getChildCount() - 1 - level);
+    }
+}
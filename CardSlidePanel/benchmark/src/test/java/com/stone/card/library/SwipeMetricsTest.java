@@ -0,0 +1,46 @@
+package com.stone.card.library;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 每次滑动回调一次性能数据，飞出的卡片重排后推迟的bindView计入它自己的这次滑动。
+ * 用按钮触发飞出：拖动期间统计用的帧回调每帧重新注册，暂停的looper里逐帧推进不会停下来
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SwipeMetricsTest {
+
+    private static final int SWIPES = 5;
+
+    @Test
+    public void deferredBindIsCountedInItsOwnSwipe() throws Exception {
+        final CardPanelDriver driver = new CardPanelDriver(SWIPES + 10);
+        final List<Long> bindNanos = new ArrayList<>();
+        final List<Integer> bindCounts = new ArrayList<>();
+        driver.panel.setSwipeMetricsListener(new CardSlidePanel.SwipeMetricsListener() {
+            @Override
+            public void onSwipeMetrics(SwipeMetrics metrics) {
+                bindNanos.add(metrics.getBindNanos());
+                bindCounts.add(driver.adapter.bindCount);
+            }
+        });
+        driver.attach();
+
+        for (int i = 0; i < SWIPES; i++) {
+            int bindCountBefore = driver.adapter.bindCount;
+            driver.panel.swipeRight();
+            driver.settle();
+            assertEquals(i + 1, bindNanos.size());
+            // 回调时这次滑动重排出来的卡片已经绑定了新数据
+            assertTrue(bindCounts.get(i) > bindCountBefore);
+            assertTrue(bindNanos.get(i) > 0);
+        }
+    }
+}
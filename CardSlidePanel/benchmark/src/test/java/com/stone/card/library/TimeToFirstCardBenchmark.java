@@ -0,0 +1,82 @@
+package com.stone.card.library;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 从setAdapter到第一张卡片显示内容的耗时：同步inflate、同步inflate+预热、异步inflate+预热。
+ * 分别记录：setAdapter（含预热）加第一次measure/layout的主线程耗时；到第一张卡片绑定好数据的总耗时，
+ * 异步模式下包括等待后台线程；以及直到所有卡片就绪、渐显动画结束的主线程累计耗时
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TimeToFirstCardBenchmark {
+
+    private static final int CARD_COUNT = 10;
+    private static final int WARMUP_RUNS = 20;
+    private static final int MEASURE_RUNS = 100;
+
+    @Test
+    public void benchmarkTimeToFirstCard() throws Exception {
+        // 三种方式交替执行，避免JIT预热程度不同造成偏差
+        FirstCardStats sync = new FirstCardStats();
+        FirstCardStats syncPrewarm = new FirstCardStats();
+        FirstCardStats asyncPrewarm = new FirstCardStats();
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            measure(false, false, new FirstCardStats());
+            measure(false, true, new FirstCardStats());
+            measure(true, true, new FirstCardStats());
+        }
+        for (int i = 0; i < MEASURE_RUNS; i++) {
+            measure(false, false, sync);
+            measure(false, true, syncPrewarm);
+            measure(true, true, asyncPrewarm);
+        }
+
+        BenchmarkReport report = new BenchmarkReport(TimeToFirstCardBenchmark.class, "timeToFirstCard");
+        report.add("sync inflate: %s", sync);
+        report.add("sync inflate + prewarm: %s", syncPrewarm);
+        report.add("async inflate + prewarm: %s", asyncPrewarm);
+        report.write();
+
+        // 异步模式下主线程不做inflate，setAdapter加第一次layout应明显快于同步模式
+        assertTrue(asyncPrewarm.layoutNanos < sync.layoutNanos);
+    }
+
+    private static void measure(boolean asyncInflate, boolean prewarm, FirstCardStats stats)
+            throws InterruptedException {
+        CardPanelDriver driver = new CardPanelDriver(CARD_COUNT, asyncInflate, prewarm);
+        long startNanos = System.nanoTime();
+        driver.attach();
+        long attachNanos = System.nanoTime() - startNanos;
+        long callbackNanos = driver.awaitFirstCard();
+        long firstCardNanos = System.nanoTime() - startNanos + driver.setAdapterNanos;
+        callbackNanos += driver.awaitAllContent();
+        // 两种模式都跑完卡片的渐显动画，主线程耗时才可比
+        long settleStartNanos = System.nanoTime();
+        driver.settle();
+        long settleNanos = System.nanoTime() - settleStartNanos;
+
+        stats.runs++;
+        stats.layoutNanos += driver.setAdapterNanos + attachNanos;
+        stats.firstCardNanos += firstCardNanos;
+        stats.mainThreadNanos += driver.setAdapterNanos + attachNanos + callbackNanos + settleNanos;
+    }
+
+    private static class FirstCardStats {
+
+        int runs = 0;
+        long layoutNanos = 0; // setAdapter + 第一次layout
+        long firstCardNanos = 0; // 到第一张卡片绑定好数据，包括等待后台线程
+        long mainThreadNanos = 0; // 主线程累计，直到所有卡片就绪、渐显动画结束
+
+        @Override
+        public String toString() {
+            return String.format("setAdapter + first layout %.3f ms, until first card bound %.3f ms, "
+                            + "main thread until all cards shown %.3f ms (%d runs)",
+                    layoutNanos / 1e6 / runs, firstCardNanos / 1e6 / runs, mainThreadNanos / 1e6 / runs, runs);
+        }
+    }
+}
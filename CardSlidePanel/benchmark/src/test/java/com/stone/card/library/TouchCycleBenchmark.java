@@ -0,0 +1,100 @@
+package com.stone.card.library;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用合成的MotionEvent驱动CardSlidePanel完成整次滑动：
+ * 每个touch周期的耗时、每次滑动的内存分配，以及经过orderViewStack的最大连续滑动速率。
+ * 数值包含Robolectric的开销，只用于同一台机器上改动前后的对比
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TouchCycleBenchmark {
+
+    private static final int WARMUP_SWIPES = 50;
+    private static final int MEASURE_SWIPES = 500;
+
+    @Test
+    public void benchmarkTouchCycle() throws Exception {
+        CardPanelDriver driver = new CardPanelDriver(WARMUP_SWIPES + MEASURE_SWIPES + 10);
+        driver.attach();
+        for (int i = 0; i < WARMUP_SWIPES; i++) {
+            driver.swipe();
+        }
+
+        driver.resetTouchStats();
+        for (int i = 0; i < MEASURE_SWIPES; i++) {
+            driver.swipe();
+        }
+
+        BenchmarkReport report = new BenchmarkReport(TouchCycleBenchmark.class, "touchCycle");
+        report.add("touch cycle (dispatch + intercept/touch + frame commit): %.0f ns/event over %d events",
+                driver.touchNanos / (double) driver.touchCount, driver.touchCount);
+        report.write();
+        assertEquals(MEASURE_SWIPES * (CardPanelDriver.MOVE_STEPS + 2), driver.touchCount);
+    }
+
+    @Test
+    public void benchmarkAllocationsPerSwipe() throws Exception {
+        CardPanelDriver driver = new CardPanelDriver(WARMUP_SWIPES + MEASURE_SWIPES + 10);
+        driver.attach();
+        for (int i = 0; i < WARMUP_SWIPES; i++) {
+            driver.swipe();
+        }
+
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURE_SWIPES; i++) {
+            driver.swipe();
+        }
+        long bytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+        BenchmarkReport report = new BenchmarkReport(TouchCycleBenchmark.class, "allocationsPerSwipe");
+        report.add("main thread allocations: %d bytes/swipe over %d swipes (includes Robolectric shadows)",
+                bytes / MEASURE_SWIPES, MEASURE_SWIPES);
+        report.write();
+        assertTrue(bytes >= 0);
+    }
+
+    @Test
+    public void benchmarkSwipesPerSecond() throws Exception {
+        CardPanelDriver driver = new CardPanelDriver(WARMUP_SWIPES + MEASURE_SWIPES + 10);
+        final int[] shown = new int[1];
+        driver.panel.setCardSwitchListener(new CardSlidePanel.CardSwitchListener() {
+            @Override
+            public void onShow(int index) {
+                shown[0]++;
+            }
+
+            @Override
+            public void onCardVanish(int index, int type) {
+            }
+        });
+        driver.attach();
+        for (int i = 0; i < WARMUP_SWIPES; i++) {
+            driver.swipe();
+        }
+
+        shown[0] = 0;
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < MEASURE_SWIPES; i++) {
+            driver.swipe();
+        }
+        long costNanos = System.nanoTime() - startNanos;
+
+        // 每次滑动都经过orderViewStack重排，回调一次onShow
+        assertEquals(MEASURE_SWIPES, shown[0]);
+        BenchmarkReport report = new BenchmarkReport(TouchCycleBenchmark.class, "swipesPerSecond");
+        report.add("sustained swipes through orderViewStack: %.1f swipes/s (%.3f ms/swipe, %d swipes)",
+                MEASURE_SWIPES * 1e9 / costNanos, costNanos / 1e6 / MEASURE_SWIPES, MEASURE_SWIPES);
+        report.write();
+    }
+}
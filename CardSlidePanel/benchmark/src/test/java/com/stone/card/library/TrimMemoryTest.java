@@ -0,0 +1,60 @@
+package com.stone.card.library;
+
+import android.content.ComponentCallbacks2;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 内存紧张时解绑卡片：界面可见时只解绑底部备用的卡片，界面不可见时解绑顶层以外的卡片，重新可见后再绑定
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TrimMemoryTest {
+
+    private static final int CARD_COUNT = 10;
+    private static final int VISIBLE_COUNT = 3;
+
+    @Test
+    public void runningCriticalKeepsVisibleCardsBound() throws Exception {
+        CardPanelDriver driver = new CardPanelDriver(CARD_COUNT);
+        driver.attach();
+
+        driver.panel.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+
+        for (int level = 0; level < VISIBLE_COUNT; level++) {
+            assertEquals("card " + level, cardText(driver, level));
+        }
+        assertEquals("", cardText(driver, VISIBLE_COUNT));
+    }
+
+    @Test
+    public void uiHiddenUnbindsAllButTopAndRebindsWhenVisible() throws Exception {
+        CardPanelDriver driver = new CardPanelDriver(CARD_COUNT);
+        driver.attach();
+
+        driver.panel.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals("card 0", cardText(driver, 0));
+        for (int level = 1; level <= VISIBLE_COUNT; level++) {
+            assertEquals("", cardText(driver, level));
+        }
+
+        // 重新可见时露出的卡片立即绑定，备用的推迟到后续帧
+        driver.panel.dispatchWindowVisibilityChanged(View.VISIBLE);
+        for (int level = 0; level < VISIBLE_COUNT; level++) {
+            assertEquals("card " + level, cardText(driver, level));
+        }
+        driver.frame();
+        assertEquals("card " + VISIBLE_COUNT, cardText(driver, VISIBLE_COUNT));
+    }
+
+    private static String cardText(CardPanelDriver driver, int level) {
+        ViewGroup itemView = (ViewGroup) driver.panel.getChildAt(driver.panel.getChildCount() - 1 - level);
+        return ((TextView) itemView.getChildAt(0)).getText().toString();
+    }
+}
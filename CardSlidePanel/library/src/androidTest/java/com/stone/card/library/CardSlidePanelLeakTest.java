@@ -0,0 +1,167 @@
+package com.stone.card.library;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 反复创建、销毁面板，adapter比面板活得更久时不能持有面板
+ */
+@RunWith(AndroidJUnit4.class)
+public class CardSlidePanelLeakTest {
+
+    private static final int LOOP_COUNT = 20;
+
+    @Rule
+    public ActivityTestRule<PanelHostActivity> activityRule = new ActivityTestRule<>(PanelHostActivity.class);
+
+    @Test
+    public void detachedPanelsAreCollected() throws Throwable {
+        final FrameLayout container = activityRule.getActivity().getContainer();
+        final TestAdapter adapter = new TestAdapter(30);
+        final List<WeakReference<CardSlidePanel>> panelRefs = new ArrayList<>();
+
+        for (int i = 0; i < LOOP_COUNT; i++) {
+            final CardSlidePanel[] holder = new CardSlidePanel[1];
+            activityRule.runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    CardSlidePanel panel = new CardSlidePanel(container.getContext());
+                    panel.setAdapter(adapter);
+                    container.addView(panel, new FrameLayout.LayoutParams(
+                            ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+                    holder[0] = panel;
+                }
+            });
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+            activityRule.runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    // 卡片正在飞出、回弹时被移除
+                    holder[0].swipeLeft();
+                    holder[0].swipeRight();
+                    container.removeView(holder[0]);
+                }
+            });
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+            assertEquals(0, adapter.getCardDataObserverCount());
+
+            panelRefs.add(new WeakReference<>(holder[0]));
+            holder[0] = null;
+        }
+
+        assertTrue("detached panels are still reachable", awaitCollected(panelRefs));
+    }
+
+    @Test
+    public void setAdapterSwapsObserver() throws Throwable {
+        final FrameLayout container = activityRule.getActivity().getContainer();
+        final TestAdapter first = new TestAdapter(10);
+        final TestAdapter second = new TestAdapter(10);
+        final CardSlidePanel[] holder = new CardSlidePanel[1];
+
+        activityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                CardSlidePanel panel = new CardSlidePanel(container.getContext());
+                container.addView(panel, new FrameLayout.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+                panel.setAdapter(first);
+                panel.setAdapter(first);
+                holder[0] = panel;
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        assertEquals(1, first.getCardDataObserverCount());
+
+        activityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                holder[0].setAdapter(second);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        assertEquals(0, first.getCardDataObserverCount());
+        assertEquals(1, second.getCardDataObserverCount());
+
+        activityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                container.removeView(holder[0]);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        assertEquals(0, second.getCardDataObserverCount());
+
+        activityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                // 重新挂上窗口后恢复监听
+                container.addView(holder[0]);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        assertEquals(1, second.getCardDataObserverCount());
+    }
+
+    private static boolean awaitCollected(List<WeakReference<CardSlidePanel>> refs) throws InterruptedException {
+        for (int i = 0; i < 10; i++) {
+            Runtime.getRuntime().gc();
+            System.runFinalization();
+            boolean allCollected = true;
+            for (WeakReference<CardSlidePanel> ref : refs) {
+                if (null != ref.get()) {
+                    allCollected = false;
+                    break;
+                }
+            }
+            if (allCollected) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
+
+    private static class TestAdapter extends CardAdapter {
+
+        private final int count;
+
+        TestAdapter(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public int getLayoutId() {
+            return android.R.layout.simple_list_item_1;
+        }
+
+        @Override
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public void bindView(View view, int index) {
+        }
+
+        @Override
+        public Object getItem(int index) {
+            return index;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.stone.card.library;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.widget.FrameLayout;
+
+/**
+ * 测试用的宿主Activity，面板被反复添加到container上再移除
+ */
+public class PanelHostActivity extends Activity {
+
+    private FrameLayout container;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        container = new FrameLayout(this);
+        setContentView(container);
+    }
+
+    public FrameLayout getContainer() {
+        return container;
+    }
+}
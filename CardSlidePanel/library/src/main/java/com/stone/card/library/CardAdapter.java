@@ -2,6 +2,7 @@ package com.stone.card.library;
 
 import android.database.DataSetObservable;
 import android.database.DataSetObserver;
+import android.database.Observable;
 import android.graphics.Rect;
 import android.view.View;
 
@@ -12,12 +13,27 @@ import android.view.View;
 public abstract class CardAdapter {
 
     private final DataSetObservable mDataSetObservable = new DataSetObservable();
+    private final CardDataObservable mCardDataObservable = new CardDataObservable();
 
     /**
      * layout文件ID，调用者必须实现
      */
     public abstract int getLayoutId();
 
+    /**
+     * 某种类型卡片的layout文件ID，有多种类型时重载，默认都使用{@link #getLayoutId()}
+     */
+    public int getLayoutId(int viewType) {
+        return getLayoutId();
+    }
+
+    /**
+     * 数据对应的卡片类型，类型不同的卡片内容分开回收复用，可重载
+     */
+    public int getItemViewType(int index) {
+        return 0;
+    }
+
     /**
      * item数量，调用者必须实现
      */
@@ -28,14 +44,31 @@ public abstract class CardAdapter {
      */
     public abstract void bindView(View view, int index);
 
+    /**
+     * 内存紧张时，底部备用的卡片会被解绑，界面不可见时顶层以外的卡片都会被解绑，可在此释放图片等资源或者换成缩略图；
+     * 卡片露出之前会重新调用{@link #bindView(View, int)}，可重载
+     *
+     * @param view  被解绑的卡片View
+     * @param index 此前绑定的数据index
+     */
+    public void unbindView(View view, int index) {
+    }
+
     /**
      * 获取数据用
      */
     public abstract Object getItem(int index);
 
+    /**
+     * 数据集的标识，notifyDataSetChanged时与之前记录的不同，面板会回到第一张；默认取第一条数据
+     */
+    Object getDataSetIdentity() {
+        return getItem(0);
+    }
+
 
     /**
-     * 可滑动区域定制
+     * 可滑动区域定制，坐标相对于面板；建议改用{@link #obtainHitRegions(View, CardHitRegions)}
      *
      * @param view 拖动的View
      */
@@ -43,6 +76,44 @@ public abstract class CardAdapter {
         return null;
     }
 
+    /**
+     * 点击区域定制，每次layout之后每种类型的卡片调用一次，坐标相对于卡片左上角，可重载；
+     * 默认使用{@link #obtainDraggableArea(View)}的结果作为可拖动区域
+     *
+     * @param view    该类型的卡片View
+     * @param regions 待填充的区域
+     */
+    public void obtainHitRegions(View view, CardHitRegions regions) {
+        Rect draggableArea = obtainDraggableArea(view);
+        if (null != draggableArea) {
+            regions.add(CardHitRegions.ZONE_DRAGGABLE, draggableArea.left - view.getLeft(),
+                    draggableArea.top - view.getTop(), draggableArea.right - view.getLeft(),
+                    draggableArea.bottom - view.getTop());
+        }
+    }
+
+    /**
+     * 顶层卡片变化回调，index为当前显示的数据index，可重载
+     */
+    public void onCardShow(int index) {
+    }
+
+    /**
+     * 预加载回调，index对应的卡片即将进入驻留的卡片，可提前加载图片等资源，可重载
+     *
+     * @param index 即将用到的数据index
+     */
+    public void onPrefetch(int index) {
+    }
+
+    /**
+     * 取消预加载回调，index对应的卡片被跳过或数据被重置，可重载
+     *
+     * @param index 此前通过{@link #onPrefetch(int)}预加载过的数据index
+     */
+    public void onCancelPrefetch(int index) {
+    }
+
     public void registerDataSetObserver(DataSetObserver observer) {
         mDataSetObservable.registerObserver(observer);
     }
@@ -51,7 +122,117 @@ public abstract class CardAdapter {
         mDataSetObservable.unregisterObserver(observer);
     }
 
+    public void registerCardDataObserver(CardDataObserver observer) {
+        mCardDataObservable.registerObserver(observer);
+    }
+
+    public void unregisterCardDataObserver(CardDataObserver observer) {
+        mCardDataObservable.unregisterObserver(observer);
+    }
+
+    /**
+     * 当前注册的CardDataObserver数量，用于检查面板是否正确摘掉了observer
+     */
+    int getCardDataObserverCount() {
+        return mCardDataObservable.getObserverCount();
+    }
+
     public void notifyDataSetChanged() {
         mDataSetObservable.notifyChanged();
+        mCardDataObservable.notifyChanged();
+    }
+
+    /**
+     * index对应的数据内容改变，只会重新绑定对应的卡片
+     */
+    public void notifyItemChanged(int index) {
+        notifyItemRangeChanged(index, 1);
+    }
+
+    public void notifyItemRangeChanged(int positionStart, int itemCount) {
+        mDataSetObservable.notifyChanged();
+        mCardDataObservable.notifyItemRangeChanged(positionStart, itemCount);
+    }
+
+    /**
+     * 在index处插入了数据，插在当前显示卡片之前时，当前卡片保持不变
+     */
+    public void notifyItemInserted(int index) {
+        notifyItemRangeInserted(index, 1);
+    }
+
+    public void notifyItemRangeInserted(int positionStart, int itemCount) {
+        mDataSetObservable.notifyChanged();
+        mCardDataObservable.notifyItemRangeInserted(positionStart, itemCount);
+    }
+
+    /**
+     * index处的数据被删除
+     */
+    public void notifyItemRemoved(int index) {
+        notifyItemRangeRemoved(index, 1);
+    }
+
+    public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+        mDataSetObservable.notifyChanged();
+        mCardDataObservable.notifyItemRangeRemoved(positionStart, itemCount);
+    }
+
+    /**
+     * 细粒度的数据变化监听
+     */
+    public static abstract class CardDataObserver {
+        public void onChanged() {
+        }
+
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+        }
+
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+        }
+
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+        }
+    }
+
+    static class CardDataObservable extends Observable<CardDataObserver> {
+
+        int getObserverCount() {
+            synchronized (mObservers) {
+                return mObservers.size();
+            }
+        }
+
+        void notifyChanged() {
+            synchronized (mObservers) {
+                for (int i = mObservers.size() - 1; i >= 0; i--) {
+                    mObservers.get(i).onChanged();
+                }
+            }
+        }
+
+        void notifyItemRangeChanged(int positionStart, int itemCount) {
+            synchronized (mObservers) {
+                for (int i = mObservers.size() - 1; i >= 0; i--) {
+                    mObservers.get(i).onItemRangeChanged(positionStart, itemCount);
+                }
+            }
+        }
+
+        void notifyItemRangeInserted(int positionStart, int itemCount) {
+            synchronized (mObservers) {
+                for (int i = mObservers.size() - 1; i >= 0; i--) {
+                    mObservers.get(i).onItemRangeInserted(positionStart, itemCount);
+                }
+            }
+        }
+
+        void notifyItemRangeRemoved(int positionStart, int itemCount) {
+            synchronized (mObservers) {
+                for (int i = mObservers.size() - 1; i >= 0; i--) {
+                    mObservers.get(i).onItemRangeRemoved(positionStart, itemCount);
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,78 @@
+package com.stone.card.library;
+
+import android.util.SparseArray;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按类型回收的卡片内容View，连同卡片上挂的tag（通常是ViewHolder）一起回收
+ *
+ * @author xmuSistone
+ */
+final class CardContentPool {
+
+    private final SparseArray<List<View>> views = new SparseArray<>();
+    private final SparseArray<List<Object>> tags = new SparseArray<>();
+    private int maxPerType;
+
+    CardContentPool(int maxPerType) {
+        this.maxPerType = maxPerType;
+    }
+
+    void setMaxPerType(int maxPerType) {
+        this.maxPerType = maxPerType;
+    }
+
+    /**
+     * 卡片换成别的类型之前，回收它当前的内容View，该类型已满时直接丢弃
+     */
+    void recycle(CardItemView itemView) {
+        int viewType = itemView.getViewType();
+        Object tag = itemView.getTag();
+        View contentView = itemView.detachContentView();
+        itemView.setTag(null);
+        if (null != contentView) {
+            put(viewType, contentView, tag);
+        }
+    }
+
+    /**
+     * 回收一个未被使用的内容View，比如类型已经变了的异步inflate结果
+     */
+    void put(int viewType, View contentView, Object tag) {
+        List<View> typeViews = views.get(viewType);
+        if (null == typeViews) {
+            typeViews = new ArrayList<>();
+            views.put(viewType, typeViews);
+            tags.put(viewType, new ArrayList<>());
+        }
+        if (typeViews.size() >= maxPerType) {
+            return;
+        }
+        typeViews.add(contentView);
+        tags.get(viewType).add(tag);
+    }
+
+    /**
+     * 从池中取出该类型的内容View添加到卡片上
+     *
+     * @return 池中没有该类型时返回false
+     */
+    boolean attachTo(CardItemView itemView, int viewType) {
+        List<View> typeViews = views.get(viewType);
+        if (null == typeViews || typeViews.isEmpty()) {
+            return false;
+        }
+        int last = typeViews.size() - 1;
+        itemView.setTag(tags.get(viewType).remove(last));
+        itemView.attachContentView(typeViews.remove(last), viewType);
+        return true;
+    }
+
+    void clear() {
+        views.clear();
+        tags.clear();
+    }
+}
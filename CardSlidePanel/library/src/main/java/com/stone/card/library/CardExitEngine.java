@@ -0,0 +1,37 @@
+package com.stone.card.library;
+
+/**
+ * 卡片飞出的计算引擎：松手后决定卡片的去向、飞出动画的时长，可通过
+ * {@link CardSlidePanel#setExitEngine(CardExitEngine)}替换
+ *
+ * @author xmuSistone
+ */
+public interface CardExitEngine {
+
+    /**
+     * 计算松手后卡片的去向
+     *
+     * @param left        松手时卡片的left
+     * @param top         松手时卡片的top
+     * @param initLeft    顶层卡片静止时的left
+     * @param initTop     顶层卡片静止时的top
+     * @param xvel        松手时x方向的速度，单位像素/秒
+     * @param yvel        松手时y方向的速度，单位像素/秒
+     * @param childWidth  卡片宽度
+     * @param panelWidth  面板宽度
+     * @param panelHeight 面板高度
+     * @param outTarget   输出飞出的终点，outTarget[0]为x，outTarget[1]为y
+     * @return 飞向哪一侧{@link CardSlidePanel#VANISH_TYPE_LEFT}或{@link CardSlidePanel#VANISH_TYPE_RIGHT}，-1表示回到中间
+     */
+    public int computeTarget(int left, int top, int initLeft, int initTop, float xvel, float yvel,
+                             int childWidth, int panelWidth, int panelHeight, int[] outTarget);
+
+    /**
+     * 计算飞出动画的时长，动画使用减速插值，起始速度为 2 * 距离 / 时长
+     *
+     * @param xvel 起始时x方向的速度，按钮触发时为0
+     * @param yvel 起始时y方向的速度，按钮触发时为0
+     * @return 时长，单位毫秒
+     */
+    public long computeDuration(int fromX, int fromY, int toX, int toY, float xvel, float yvel);
+}
@@ -0,0 +1,88 @@
+package com.stone.card.library;
+
+import android.graphics.Rect;
+
+/**
+ * 卡片上的点击区域划分，坐标相对于卡片自身的左上角；
+ * 由{@link CardAdapter#obtainHitRegions(android.view.View, CardHitRegions)}填充，
+ * 每次layout之后按卡片类型重新计算一次，面板为每种类型保留一个对象，清空后重新填充
+ *
+ * @author xmuSistone
+ */
+public class CardHitRegions {
+
+    public static final int ZONE_NONE = 0; // 不在任何区域内，不可拖动
+    public static final int ZONE_DRAGGABLE = 1; // 可拖动
+    public static final int ZONE_TAP_EXPAND = 2; // 可拖动，轻点时回调展开
+    public static final int ZONE_NO_DRAG = 3; // 不可拖动，比如卡片上的按钮、可滚动的内容
+    public static final int ZONE_CUSTOM = 100; // 自定义区域从该值开始，按可拖动处理
+
+    private Rect[] rects = new Rect[4];
+    private int[] zones = new int[4];
+    private int size = 0;
+    private boolean hasDraggableZone = false;
+    private boolean stale = true; // layout之后失效，下次按下时清空、重新填充
+
+    /**
+     * 添加一个区域，区域重叠时先添加的优先
+     */
+    public CardHitRegions add(int zone, Rect rect) {
+        return add(zone, rect.left, rect.top, rect.right, rect.bottom);
+    }
+
+    public CardHitRegions add(int zone, int left, int top, int right, int bottom) {
+        if (size == zones.length) {
+            int[] newZones = new int[size * 2];
+            System.arraycopy(zones, 0, newZones, 0, size);
+            zones = newZones;
+            Rect[] newRects = new Rect[size * 2];
+            System.arraycopy(rects, 0, newRects, 0, size);
+            rects = newRects;
+        }
+        // 清空之后保留Rect对象，重新填充时直接复用
+        if (null == rects[size]) {
+            rects[size] = new Rect(left, top, right, bottom);
+        } else {
+            rects[size].set(left, top, right, bottom);
+        }
+        zones[size] = zone;
+        size++;
+        if (isDraggable(zone)) {
+            hasDraggableZone = true;
+        }
+        return this;
+    }
+
+    /**
+     * 判断点(x, y)所在的区域，坐标相对于卡片左上角；
+     * 没有添加任何可拖动的区域时，区域之外都按{@link #ZONE_DRAGGABLE}处理
+     */
+    public int hitTest(int x, int y) {
+        for (int i = 0; i < size; i++) {
+            if (rects[i].contains(x, y)) {
+                return zones[i];
+            }
+        }
+        return hasDraggableZone ? ZONE_NONE : ZONE_DRAGGABLE;
+    }
+
+    /**
+     * 该区域内按下时是否允许拖动
+     */
+    public static boolean isDraggable(int zone) {
+        return zone == ZONE_DRAGGABLE || zone == ZONE_TAP_EXPAND || zone >= ZONE_CUSTOM;
+    }
+
+    void clear() {
+        size = 0;
+        hasDraggableZone = false;
+    }
+
+    boolean isStale() {
+        return stale;
+    }
+
+    void setStale(boolean stale) {
+        this.stale = stale;
+    }
+}
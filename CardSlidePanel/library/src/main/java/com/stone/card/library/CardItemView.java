@@ -1,12 +1,19 @@
 package com.stone.card.library;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.ObjectAnimator;
 import android.animation.ValueAnimator;
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.view.animation.DecelerateInterpolator;
 import android.widget.FrameLayout;
 
 import com.facebook.rebound.SimpleSpringListener;
@@ -25,6 +32,38 @@ public class CardItemView extends FrameLayout {
     private Spring springX, springY;
     private CardSlidePanel parentView;
     private ObjectAnimator alphaAnimator;
+    private ValueAnimator exitAnimator; // 飞出动画，每张卡片独立、重复使用，多张卡片可以同时飞出
+    private boolean exitRunning = false;
+    private int exitFromX, exitFromY, exitToX, exitToY;
+    private boolean propertyExit = false; // 飞出动画是否作用在translation等属性上
+    private float exitRotation, exitFromAlpha;
+
+    /* 属性动画模式下，下层卡片向上一层靠拢的动画及其起点、终点 */
+    private ValueAnimator linkageAnimator;
+    private boolean linkageRunning = false;
+    private float linkageFromTranslationY, linkageFromScale, linkageFromAlpha;
+    private int linkageTop;
+    private float linkageScale, linkageAlpha;
+
+    /* 本帧内尚未提交的位置，x、y两个方向的更新合并到一起，每帧只offset一次 */
+    private int pendingX, pendingY;
+    private boolean hasPendingPos = false;
+
+    private boolean contentReady = false; // 卡片内容是否已inflate并添加
+    private View contentView;
+    private int viewType = 0; // 当前内容（或正在inflate的内容）的类型
+    private int pendingBindIndex = -1; // 内容未就绪时，待绑定的数据index
+    private int stackIndex = -1; // 在面板viewList中的位次，0为顶层，避免touch过程中indexOf查找
+    private int layerRequestCount = 0; // 申请硬件层的次数，大于0时处于硬件层上
+    private int vanishType = -1; // 飞出的方向，回退时从这一侧飞回
+    private SwipeMetrics swipeMetrics; // 本卡片这一次滑动的性能数据，多张卡片同时飞出时互不干扰
+
+    /* 快照模式：非顶层卡片绘制缩小的Bitmap快照，而不是完整的View层级 */
+    private Bitmap snapshot;
+    private boolean snapshotDirty = true;
+    private Canvas snapshotCanvas;
+    private Paint snapshotPaint;
+    private Rect snapshotDst;
 
     public CardItemView(Context context) {
         this(context, null);
@@ -36,21 +75,23 @@ public class CardItemView extends FrameLayout {
 
     public CardItemView(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
-        initSpring();
     }
 
-    private void initSpring() {
+    /**
+     * spring由面板共享的SpringSystem创建，所有卡片共用同一个Choreographer循环
+     */
+    private void initSpring(SpringSystem springSystem) {
         SpringConfig springConfig = SpringConfig.fromBouncinessAndSpeed(15, 20);
-        SpringSystem mSpringSystem = SpringSystem.create();
-        springX = mSpringSystem.createSpring().setSpringConfig(springConfig);
-        springY = mSpringSystem.createSpring().setSpringConfig(springConfig);
+        springX = springSystem.createSpring().setSpringConfig(springConfig);
+        springY = springSystem.createSpring().setSpringConfig(springConfig);
 
         springX.addListener(new SimpleSpringListener() {
             @Override
             public void onSpringUpdate(Spring spring) {
                 int xPos = (int) spring.getCurrentValue();
-                setScreenX(xPos);
-                parentView.onViewPosChanged(CardItemView.this);
+                setPendingPos(xPos, getPendingTop());
+                // 位置提交与联动处理交给面板在这一帧所有spring计算完之后统一进行
+                parentView.onSpringPosChanged(CardItemView.this);
             }
         });
 
@@ -58,8 +99,8 @@ public class CardItemView extends FrameLayout {
             @Override
             public void onSpringUpdate(Spring spring) {
                 int yPos = (int) spring.getCurrentValue();
-                setScreenY(yPos);
-                parentView.onViewPosChanged(CardItemView.this);
+                setPendingPos(getPendingLeft(), yPos);
+                parentView.onSpringPosChanged(CardItemView.this);
             }
         });
     }
@@ -81,6 +122,38 @@ public class CardItemView extends FrameLayout {
         springY.setCurrentValue(yPos);
     }
 
+    /**
+     * 记录待提交的位置，由面板在帧末统一提交
+     */
+    void setPendingPos(int xPos, int yPos) {
+        pendingX = xPos;
+        pendingY = yPos;
+        hasPendingPos = true;
+    }
+
+    int getPendingLeft() {
+        return hasPendingPos ? pendingX : getLeft();
+    }
+
+    int getPendingTop() {
+        return hasPendingPos ? pendingY : getTop();
+    }
+
+    /**
+     * 提交待定的位置
+     *
+     * @return 是否有位置被提交
+     */
+    boolean commitPendingPos() {
+        if (!hasPendingPos) {
+            return false;
+        }
+        hasPendingPos = false;
+        setScreenX(pendingX);
+        setScreenY(pendingY);
+        return true;
+    }
+
     public void setScreenX(int screenX) {
         this.offsetLeftAndRight(screenX - getLeft());
     }
@@ -91,17 +164,415 @@ public class CardItemView extends FrameLayout {
 
     public void setParentView(CardSlidePanel parentView) {
         this.parentView = parentView;
+        if (null == springX) {
+            initSpring(parentView.getSpringSystem());
+        }
     }
 
     public void onStartDragging() {
+        commitPendingPos();
         springX.setAtRest();
         springY.setAtRest();
     }
 
+    /**
+     * 回弹、渐显动画直接落到终点，面板离开窗口或不可见时调用
+     */
+    void stopAnimations() {
+        if (null != alphaAnimator) {
+            alphaAnimator.end();
+            alphaAnimator = null;
+        }
+        if (null != springX) {
+            stopSpring(springX);
+            stopSpring(springY);
+        }
+    }
+
+    private void stopSpring(Spring spring) {
+        if (!spring.isAtRest()) {
+            // 跳到终点时listener会记录待提交的位置
+            spring.setCurrentValue(spring.getEndValue());
+            spring.setAtRest();
+        }
+    }
+
+    /**
+     * 卡片被面板丢弃：结束所有动画，销毁spring并移除其listener，归还快照
+     */
+    void destroy() {
+        stopAnimations();
+        endExitAnimation();
+        endLinkageAnimation();
+        if (null != springX) {
+            springX.destroy();
+            springY.destroy();
+            springX = null;
+            springY = null;
+        }
+        releaseSnapshot();
+    }
+
     public void bindLayoutResId(int layoutResId) {
+        bindLayoutResId(layoutResId, 0);
+    }
+
+    void bindLayoutResId(int layoutResId, int viewType) {
         LayoutInflater inflater = LayoutInflater.from(getContext());
         View view = inflater.inflate(layoutResId, null);
-        addView(view, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+        attachContentView(view, viewType);
+    }
+
+    /**
+     * 添加已inflate好的卡片内容，可能来自异步inflate或者回收池
+     */
+    void attachContentView(View contentView, int viewType) {
+        snapshotDirty = true;
+        this.contentView = contentView;
+        this.viewType = viewType;
+        addView(contentView, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+        contentReady = true;
+    }
+
+    /**
+     * 移除当前内容，准备换成别的类型
+     *
+     * @return 被移除的内容View，内容还在inflate时返回null
+     */
+    View detachContentView() {
+        View view = contentView;
+        if (null != view) {
+            removeView(view);
+        }
+        contentView = null;
+        contentReady = false;
+        return view;
+    }
+
+    /**
+     * 内容正在异步inflate，记录即将添加的类型
+     */
+    void setInflatingViewType(int viewType) {
+        this.viewType = viewType;
+    }
+
+    int getViewType() {
+        return viewType;
+    }
+
+    boolean isContentReady() {
+        return contentReady;
+    }
+
+    void setPendingBindIndex(int index) {
+        this.pendingBindIndex = index;
+    }
+
+    int getPendingBindIndex() {
+        return pendingBindIndex;
+    }
+
+    /**
+     * 申请硬件层，动画期间内容不必每帧重绘
+     */
+    void acquireHardwareLayer() {
+        if (layerRequestCount++ == 0) {
+            setLayerType(LAYER_TYPE_HARDWARE, null);
+        }
+    }
+
+    void releaseHardwareLayer() {
+        if (layerRequestCount > 0 && --layerRequestCount == 0) {
+            setLayerType(LAYER_TYPE_NONE, null);
+        }
+    }
+
+    /**
+     * 飞出动画，不依赖ViewDragHelper，多张卡片可以同时进行
+     */
+    void startExitAnimation(int toX, int toY, long duration) {
+        endExitAnimation();
+        propertyExit = false;
+        exitFromX = getLeft();
+        exitFromY = getTop();
+        exitToX = toX;
+        exitToY = toY;
+        startExit(duration);
+    }
+
+    /**
+     * 属性动画模式的飞出：只改变translation、rotation、alpha，动画期间不重新layout、不触发联动计算；
+     * 与位移模式一样由主线程的动画帧驱动，减少的是每帧的工作量
+     */
+    void startPropertyExitAnimation(int toX, int toY, float rotation, long duration) {
+        endExitAnimation();
+        propertyExit = true;
+        exitFromX = getLeft() + (int) getTranslationX();
+        exitFromY = getTop() + (int) getTranslationY();
+        exitToX = toX;
+        exitToY = toY;
+        exitRotation = rotation;
+        exitFromAlpha = getAlpha();
+        startExit(duration);
+    }
+
+    /**
+     * 两种模式共用同一个动画对象，第一次飞出时创建，之后每次松手都不再分配对象
+     */
+    private void startExit(long duration) {
+        if (null == exitAnimator) {
+            exitAnimator = ValueAnimator.ofFloat(0, 1);
+            exitAnimator.setInterpolator(new DecelerateInterpolator());
+            exitAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    if (exitRunning) {
+                        applyExitFraction(animation.getAnimatedFraction());
+                    }
+                }
+            });
+            exitAnimator.addListener(new AnimatorListenerAdapter() {
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    if (!exitRunning) {
+                        // 已经由endExitAnimation处理
+                        return;
+                    }
+                    exitRunning = false;
+                    if (propertyExit) {
+                        finishPropertyExit();
+                    }
+                    parentView.onExitAnimationEnd(CardItemView.this);
+                }
+            });
+        }
+        exitRunning = true;
+        exitAnimator.setDuration(duration);
+        exitAnimator.start();
+    }
+
+    private void applyExitFraction(float fraction) {
+        int x = (int) (exitFromX + (exitToX - exitFromX) * fraction);
+        int y = (int) (exitFromY + (exitToY - exitFromY) * fraction);
+        if (propertyExit) {
+            setTranslationX(x - getLeft());
+            setTranslationY(y - getTop());
+            setRotation(exitRotation * fraction);
+            setAlpha(exitFromAlpha * (1 - fraction));
+        } else {
+            setPendingPos(x, y);
+            parentView.onExitPosChanged(this);
+        }
+    }
+
+    /**
+     * 属性动画结束，位移落到layout位置上，属性归零
+     */
+    private void finishPropertyExit() {
+        propertyExit = false;
+        setTranslationX(0);
+        setTranslationY(0);
+        setRotation(0);
+        setAlpha(1);
+        setScreenX(exitToX);
+        setScreenY(exitToY);
+    }
+
+    /**
+     * 属性动画模式下，向上一层靠拢：从当前状态动画到目标top、缩放、透明度
+     */
+    void animateLinkage(int toTop, float toScale, float toAlpha, long duration) {
+        cancelLinkageAnimation();
+        linkageFromTranslationY = getTranslationY();
+        linkageFromScale = getScaleX();
+        linkageFromAlpha = getAlpha();
+        linkageTop = toTop;
+        linkageScale = toScale;
+        linkageAlpha = toAlpha;
+
+        if (null == linkageAnimator) {
+            linkageAnimator = ValueAnimator.ofFloat(0, 1);
+            linkageAnimator.setInterpolator(new DecelerateInterpolator());
+            linkageAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    if (linkageRunning) {
+                        applyLinkageFraction(animation.getAnimatedFraction());
+                    }
+                }
+            });
+            linkageAnimator.addListener(new AnimatorListenerAdapter() {
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    if (linkageRunning) {
+                        linkageRunning = false;
+                        applyLinkageTarget();
+                    }
+                }
+            });
+        }
+        linkageRunning = true;
+        linkageAnimator.setDuration(duration);
+        linkageAnimator.start();
+    }
+
+    private void applyLinkageFraction(float fraction) {
+        float toTranslationY = linkageTop - getTop();
+        float scale = linkageFromScale + (linkageScale - linkageFromScale) * fraction;
+        setTranslationY(linkageFromTranslationY + (toTranslationY - linkageFromTranslationY) * fraction);
+        setScaleX(scale);
+        setScaleY(scale);
+        setAlpha(linkageFromAlpha + (linkageAlpha - linkageFromAlpha) * fraction);
+    }
+
+    /**
+     * 靠拢动画直接跳到终点
+     */
+    void endLinkageAnimation() {
+        if (cancelLinkageAnimation()) {
+            applyLinkageTarget();
+        }
+    }
+
+    private boolean cancelLinkageAnimation() {
+        if (!linkageRunning) {
+            return false;
+        }
+        linkageRunning = false;
+        linkageAnimator.cancel();
+        return true;
+    }
+
+    private void applyLinkageTarget() {
+        setTranslationY(0);
+        setScreenY(linkageTop);
+        setScaleX(linkageScale);
+        setScaleY(linkageScale);
+        setAlpha(linkageAlpha);
+    }
+
+    boolean isExitRunning() {
+        return exitRunning;
+    }
+
+    /**
+     * 飞出动画直接跳到终点，不再回调面板
+     */
+    void endExitAnimation() {
+        if (!exitRunning) {
+            return;
+        }
+        exitRunning = false;
+        exitAnimator.cancel();
+        if (propertyExit) {
+            finishPropertyExit();
+        } else {
+            setPendingPos(exitToX, exitToY);
+            commitPendingPos();
+        }
+    }
+
+    boolean isVanishing() {
+        return vanishType >= 0;
+    }
+
+    void setVanishType(int vanishType) {
+        this.vanishType = vanishType;
+    }
+
+    int getVanishType() {
+        return vanishType;
+    }
+
+    SwipeMetrics getSwipeMetrics() {
+        if (null == swipeMetrics) {
+            swipeMetrics = new SwipeMetrics();
+        }
+        return swipeMetrics;
+    }
+
+    void setStackIndex(int stackIndex) {
+        this.stackIndex = stackIndex;
+    }
+
+    int getStackIndex() {
+        return stackIndex;
+    }
+
+    /**
+     * 内容发生变化（比如图片异步加载完成）时调用，快照模式下会重新生成快照；
+     * bindView之后面板会自动调用
+     */
+    public void invalidateSnapshot() {
+        snapshotDirty = true;
+        if (null != snapshot) {
+            invalidate();
+        }
+    }
+
+    /**
+     * 归还快照Bitmap，卡片成为顶层或者关闭快照模式时调用
+     */
+    void releaseSnapshot() {
+        if (null != snapshot) {
+            parentView.releaseSnapshotBitmap(snapshot);
+            snapshot = null;
+        }
+        snapshotDirty = true;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        snapshotDirty = true;
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (null == parentView || !parentView.shouldDrawSnapshot(this)
+                || getWidth() <= 0 || getHeight() <= 0) {
+            releaseSnapshot();
+            super.dispatchDraw(canvas);
+            return;
+        }
+
+        if (null == snapshot || snapshotDirty) {
+            buildSnapshot();
+        }
+        if (null == snapshotDst) {
+            snapshotDst = new Rect();
+            snapshotPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        }
+        snapshotDst.set(0, 0, getWidth(), getHeight());
+        canvas.drawBitmap(snapshot, null, snapshotDst, snapshotPaint);
+    }
+
+    /**
+     * 把内容按缩小的比例绘制到快照Bitmap上
+     */
+    private void buildSnapshot() {
+        float scale = parentView.getSnapshotScale();
+        int width = Math.max(1, (int) (getWidth() * scale));
+        int height = Math.max(1, (int) (getHeight() * scale));
+        if (null != snapshot && (snapshot.getWidth() != width || snapshot.getHeight() != height)) {
+            releaseSnapshot();
+        }
+        if (null == snapshot) {
+            snapshot = parentView.acquireSnapshotBitmap(width, height);
+        } else {
+            snapshot.eraseColor(0);
+        }
+
+        if (null == snapshotCanvas) {
+            snapshotCanvas = new Canvas();
+        }
+        snapshotCanvas.setBitmap(snapshot);
+        int saveCount = snapshotCanvas.save();
+        snapshotCanvas.scale(width / (float) getWidth(), height / (float) getHeight());
+        super.dispatchDraw(snapshotCanvas);
+        snapshotCanvas.restoreToCount(saveCount);
+        snapshotCanvas.setBitmap(null);
+        snapshotDirty = false;
     }
 
     public void setVisibilityWithAnimation(final int visibility, int delayIndex) {
@@ -116,6 +587,16 @@ public class CardItemView extends FrameLayout {
                     0.0f, 1.0f);
             alphaAnimator.setDuration(360);
             alphaAnimator.setStartDelay(delayIndex * 200);
+            if (null != parentView && parentView.isHardwareLayerEnabled()) {
+                // 渐显期间放到硬件层上
+                acquireHardwareLayer();
+                alphaAnimator.addListener(new AnimatorListenerAdapter() {
+                    @Override
+                    public void onAnimationEnd(Animator animation) {
+                        releaseHardwareLayer();
+                    }
+                });
+            }
             alphaAnimator.start();
         }
     }
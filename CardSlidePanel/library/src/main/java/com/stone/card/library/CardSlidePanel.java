@@ -1,21 +1,31 @@
 package com.stone.card.library;
 
 import android.annotation.SuppressLint;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
-import android.database.DataSetObserver;
+import android.graphics.Bitmap;
 import android.graphics.Point;
-import android.graphics.Rect;
-import android.support.v4.view.GestureDetectorCompat;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.v4.view.AsyncLayoutInflater;
 import android.support.v4.view.ViewCompat;
 import android.support.v4.widget.ViewDragHelper;
 import android.util.AttributeSet;
-import android.view.GestureDetector.SimpleOnGestureListener;
+import android.util.SparseArray;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
+import android.view.WindowManager;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.ChoreographerCompat;
+import com.facebook.rebound.SpringSystem;
+import com.facebook.rebound.SpringSystemListener;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
@@ -39,28 +49,176 @@ public class CardSlidePanel extends ViewGroup {
     private int childWith = 0; // 每一个子View对应的宽度
 
     private static final float SCALE_STEP = 0.08f; // view叠加缩放的步长
-    private static final int MAX_SLIDE_DISTANCE_LINKAGE = 500; // 水平距离+垂直距离
 
     private int itemMarginTop = 10; // 卡片距离顶部的偏移量
     private int bottomMarginTop = 40; // 底部按钮与卡片的margin值
     private int yOffsetStep = 40; // view叠加垂直偏移量的步长
     private int mTouchSlop = 5; // 判定为滑动的阈值，单位是像素
 
-    private static final int X_VEL_THRESHOLD = 800;
-    private static final int X_DISTANCE_THRESHOLD = 300;
-
     public static final int VANISH_TYPE_LEFT = 0;
     public static final int VANISH_TYPE_RIGHT = 1;
 
+    public static final int EXIT_MODE_OFFSET = 0; // 飞出动画逐帧移动卡片位置，联动实时计算
+    public static final int EXIT_MODE_PROPERTY = 1; // 飞出动画只改变translation、rotation、alpha等属性
+    private static final float EXIT_ROTATION = 15f; // 属性动画模式下飞出时的旋转角度
+
+    public static final int DRAG_TRACKING_DEFAULT = 0; // 松手速度由ViewDragHelper计算
+    public static final int DRAG_TRACKING_HISTORICAL = 1; // 用包括历史采样点在内的所有触摸点拟合松手速度
+    public static final int DRAG_TRACKING_PREDICTIVE = 2; // 在HISTORICAL的基础上，拖动时卡片超前到下一帧的预测位置
+    private static final float MAX_PREDICTION_RATE = 0.1f; // 预测超前的距离不超过卡片宽度的该比例
+
     private CardSwitchListener cardSwitchListener; // 回调接口
+    private SwipeMetricsListener swipeMetricsListener; // 性能数据回调，为空时不做任何统计
+    private long frameBudgetNanos = 16666667L; // 单帧预算，默认60fps
+    private CardItemView orderingView; // 正在重排的卡片，重排期间的bindView耗时计入它的性能数据
+    private boolean metricsFramePosted = false;
+    private final ChoreographerCompat.FrameCallback metricsFrameCallback = new ChoreographerCompat.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            metricsFramePosted = false;
+            if (null != swipeMetricsListener && onMetricsFrame(frameTimeNanos)) {
+                postMetricsFrame();
+            }
+        }
+    };
     private int isShowing = 0; // 当前正在显示的小项
-    private boolean btnLock = false;
-    private GestureDetectorCompat moveDetector;
+    private CardExitEngine exitEngine = new FlingExitEngine(); // 计算飞出的去向以及动画时长
+    private boolean concurrentSwipeEnabled = false; // 前一张卡片飞出期间，是否允许直接拖动下一张
+    private int exitMode = EXIT_MODE_OFFSET;
+
+    /* 拖动轨迹跟踪 */
+    private int dragTrackingMode = DRAG_TRACKING_DEFAULT;
+    private final DragTracker dragTracker = new DragTracker();
+    private final float[] trackedVelocity = new float[2];
+    private float frameIntervalSeconds = 0; // 屏幕刷新间隔，预测下一帧位置用
+
+    /* 快照模式：非顶层的卡片绘制缩小的Bitmap快照 */
+    private boolean snapshotEnabled = false;
+    private float snapshotScale = 0.5f; // 快照相对卡片的缩放比例
+    private final CardSnapshotPool snapshotPool; // 容量在读取xml中的层数之后确定
+    private int[] swipeQueue = new int[8]; // 排队等待执行的飞出方向
+    private int swipeQueueStart = 0, swipeQueueSize = 0;
     private Point downPoint = new Point();
     private CardAdapter adapter;
-    private static final int VIEW_COUNT = 4;
-    private Rect draggableArea;
+    private int visibleCount = 3; // 可见的卡片层数
+    private int spareCount = 1; // 底部备用（不可见）的卡片数
+    private SparseArray<CardHitRegions> hitRegions = new SparseArray<>(); // 按卡片类型缓存的点击区域，layout之后标记为失效
+    private int downZone = CardHitRegions.ZONE_DRAGGABLE; // 按下时所在的区域
+    private boolean tapCandidate = false; // 本次按下是否可能是一次轻点
+    private CardTapListener cardTapListener;
     private WeakReference<Object> savedFirstItemData;
+    private int restoredShowing = -1; // 恢复的显示位置，数据还没加载到这个位置时暂存
+    private final int[] vanishTarget = new int[2]; // 松手后卡片的最终位置
+
+    /* 硬件层策略：拖动、动画期间把移动和联动的卡片放到硬件层上 */
+    private boolean hardwareLayerEnabled = true;
+    private List<CardItemView> layerViews = new ArrayList<>(); // 当前由面板申请了硬件层的卡片
+
+    /* 回退历史，环形数组记录最近飞出的卡片index及方向 */
+    private int[] historyIndexes = new int[10];
+    private int[] historyTypes = new int[10];
+    private int historyStart = 0; // 最早一条记录的位置
+    private int historySize = 0;
+
+    /* 推迟绑定的卡片，每帧只绑定一张，避免notifyDataSetChanged时主线程卡顿 */
+    private List<CardItemView> pendingBindViews = new ArrayList<>();
+    private boolean rebindPosted = false;
+    private final Runnable rebindRunnable = new Runnable() {
+        @Override
+        public void run() {
+            rebindPosted = false;
+            if (pendingBindViews.size() > 0) {
+                bindPendingCard(pendingBindViews.remove(0));
+            }
+            if (pendingBindViews.size() > 0) {
+                postRebind();
+            }
+        }
+    };
+
+    /* 面板只在窗口中时监听adapter，离开窗口即摘掉，避免长生命周期的adapter持有面板 */
+    private boolean attachedToWindow = false;
+    private boolean cardDataObserverRegistered = false;
+    private final CardAdapter.CardDataObserver cardDataObserver = new CardAdapter.CardDataObserver() {
+        @Override
+        public void onChanged() {
+            onAdapterDataChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            onAdapterItemRangeChanged(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            onAdapterItemRangeInserted(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            onAdapterItemRangeRemoved(positionStart, itemCount);
+        }
+    };
+
+    /* 内存紧张时解绑的卡片，露出之前再重新绑定 */
+    private List<CardItemView> unboundViews = new ArrayList<>();
+    private boolean trimCallbacksRegistered = false;
+    private final ComponentCallbacks2 trimCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            trimMemory(level);
+        }
+
+        @Override
+        public void onLowMemory() {
+            trimMemory(TRIM_MEMORY_COMPLETE);
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+    };
+
+    /* 预加载窗口，[prefetchStart, prefetchEnd)为已通知adapter预加载的index */
+    private int prefetchDistance = 3; // 驻留卡片之后预加载的数量
+    private int prefetchStart = 0, prefetchEnd = 0;
+
+    /* 异步inflate相关 */
+    private boolean asyncInflateEnabled = false; // 是否在后台线程inflate卡片内容
+    private AsyncLayoutInflater asyncInflater;
+    private int cardGeneration = 0; // 每次丢弃全部卡片时加1，之前发出的异步inflate作废
+    private List<CardItemView> prewarmedViews = new ArrayList<>(); // 预热好的卡片View，doBindAdapter时优先取用
+    private final CardContentPool contentPool; // 按类型回收的卡片内容
+
+    /* 所有卡片共享的spring引擎，每个vsync只推进一次 */
+    private final SpringSystem springSystem = SpringSystem.create();
+    private CardItemView pendingLinkageView; // 本帧内位置改变过的卡片，等待提交位置、联动处理
+    private boolean frameCommitPosted = false;
+    private int linkageCommitCount = 0; // 联动提交的次数，测试用
+    private final Runnable frameCommitRunnable = new Runnable() {
+        @Override
+        public void run() {
+            frameCommitPosted = false;
+            commitFrame();
+        }
+    };
+
+    /* 一次性的绑定监听，以及measure、layout缓存 */
+    private boolean bindListenerAdded = false;
+    private boolean layoutDirty = true; // 卡片层级被整体重建过，下次layout需要重新摆放所有卡片
+    private int lastWidthMeasureSpec, lastHeightMeasureSpec;
+    private final ViewTreeObserver.OnGlobalLayoutListener bindLayoutListener = new ViewTreeObserver.OnGlobalLayoutListener() {
+        @Override
+        public void onGlobalLayout() {
+            if (allWidth <= 0 || allHeight <= 0) {
+                return;
+            }
+            bindListenerAdded = false;
+            removeBindLayoutListener();
+            doBindAdapter();
+        }
+    };
 
     public CardSlidePanel(Context context) {
         this(context, null);
@@ -77,6 +235,18 @@ public class CardSlidePanel extends ViewGroup {
         itemMarginTop = (int) a.getDimension(R.styleable.card_itemMarginTop, itemMarginTop);
         bottomMarginTop = (int) a.getDimension(R.styleable.card_bottomMarginTop, bottomMarginTop);
         yOffsetStep = (int) a.getDimension(R.styleable.card_yOffsetStep, yOffsetStep);
+        visibleCount = Math.max(1, a.getInt(R.styleable.card_visibleCount, visibleCount));
+        spareCount = Math.max(1, a.getInt(R.styleable.card_spareCount, spareCount));
+        prefetchDistance = Math.max(0, a.getInt(R.styleable.card_prefetchDistance, prefetchDistance));
+        hardwareLayerEnabled = a.getBoolean(R.styleable.card_hardwareLayerEnabled, hardwareLayerEnabled);
+        asyncInflateEnabled = a.getBoolean(R.styleable.card_asyncInflate, asyncInflateEnabled);
+        concurrentSwipeEnabled = a.getBoolean(R.styleable.card_concurrentSwipe, concurrentSwipeEnabled);
+        snapshotEnabled = a.getBoolean(R.styleable.card_snapshotMode, snapshotEnabled);
+        exitMode = a.getInt(R.styleable.card_exitMode, exitMode);
+        dragTrackingMode = a.getInt(R.styleable.card_dragTracking, dragTrackingMode);
+        // 回收池按xml中配置的层数确定容量
+        snapshotPool = new CardSnapshotPool(getViewCount());
+        contentPool = new CardContentPool(getViewCount());
         // 滑动相关类
         mDragHelper = ViewDragHelper
                 .create(this, 10f, new DragHelperCallback());
@@ -85,509 +255,2029 @@ public class CardSlidePanel extends ViewGroup {
 
         ViewConfiguration configuration = ViewConfiguration.get(getContext());
         mTouchSlop = configuration.getScaledTouchSlop();
-        moveDetector = new GestureDetectorCompat(context,
-                new MoveDetector());
-        moveDetector.setIsLongpressEnabled(false);
 
-        getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
+        // 所有spring推进完毕后，每帧只做一次联动
+        springSystem.addListener(new SpringSystemListener() {
+            @Override
+            public void onBeforeIntegrate(BaseSpringSystem springSystem) {
+            }
+
             @Override
-            public void onGlobalLayout() {
-                if (getChildCount() != VIEW_COUNT) {
-                    doBindAdapter();
+            public void onAfterIntegrate(BaseSpringSystem springSystem) {
+                commitFrame();
+                if (springSystem.getIsIdle() && releasedViewList.isEmpty()) {
+                    releaseLayers();
                 }
             }
         });
+
+    }
+
+    /**
+     * 面板还没有尺寸时，等第一次layout完成再绑定，绑定之后立即移除监听
+     */
+    private void requestBindAdapter() {
+        if (bindListenerAdded || getChildCount() == getViewCount()) {
+            return;
+        }
+        bindListenerAdded = true;
+        getViewTreeObserver().addOnGlobalLayoutListener(bindLayoutListener);
+    }
+
+    @SuppressWarnings("deprecation")
+    private void removeBindLayoutListener() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            getViewTreeObserver().removeOnGlobalLayoutListener(bindLayoutListener);
+        } else {
+            getViewTreeObserver().removeGlobalOnLayoutListener(bindLayoutListener);
+        }
     }
 
     private void doBindAdapter() {
-        if (adapter == null || allWidth <= 0 || allHeight <= 0) {
+        if (adapter == null || getChildCount() == getViewCount()) {
             return;
         }
+        if (allWidth <= 0 || allHeight <= 0) {
+            requestBindAdapter();
+            return;
+        }
+        layoutDirty = true;
 
-        // 1. addView添加到ViewGroup中
-        for (int i = 0; i < VIEW_COUNT; i++) {
-            CardItemView itemView = new CardItemView(getContext());
-            itemView.bindLayoutResId(adapter.getLayoutId());
-            itemView.setParentView(this);
+        // 1. addView添加到ViewGroup中，最先添加的是底部备用的view
+        int viewCount = getViewCount();
+        int count = adapter.getCount();
+        for (int i = 0; i < viewCount; i++) {
+            int index = isShowing + viewCount - 1 - i; // 该View将要绑定的数据index
+            CardItemView itemView = obtainCardItemView(index < count ? adapter.getItemViewType(index) : 0);
             addView(itemView, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
 
-            if (i == 0) {
+            if (i < spareCount) {
                 itemView.setAlpha(0);
             }
         }
 
         // 2. viewList初始化
         viewList.clear();
-        for (int i = 0; i < VIEW_COUNT; i++) {
-            viewList.add((CardItemView) getChildAt(VIEW_COUNT - 1 - i));
+        for (int i = 0; i < viewCount; i++) {
+            viewList.add((CardItemView) getChildAt(viewCount - 1 - i));
         }
+        refreshStackIndex();
 
 
         // 3. 填充数据
-        int count = adapter.getCount();
-        for (int i = 0; i < VIEW_COUNT; i++) {
-            if (i < count) {
-                adapter.bindView(viewList.get(i), i);
-                if (i == 0) {
-                    savedFirstItemData = new WeakReference<>(adapter.getItem(i));
-                }
+        if (count > 0) {
+            savedFirstItemData = new WeakReference<>(adapter.getDataSetIdentity());
+        }
+        for (int i = 0; i < viewCount; i++) {
+            if (isShowing + i < count) {
+                bindCard(viewList.get(i), isShowing + i);
             } else {
                 viewList.get(i).setVisibility(View.INVISIBLE);
             }
         }
-    }
-
-    class MoveDetector extends SimpleOnGestureListener {
 
-        @Override
-        public boolean onScroll(MotionEvent e1, MotionEvent e2, float dx,
-                                float dy) {
-            // 拖动了，touch不往下传递
-            return Math.abs(dy) + Math.abs(dx) > mTouchSlop;
-        }
+        // 4. 驻留卡片之后的数据开始预加载
+        updatePrefetchWindow();
     }
 
-
     /**
-     * 这是viewdraghelper拖拽效果的主要逻辑
+     * 获取一个卡片View，优先使用预热好的
      */
-    private class DragHelperCallback extends ViewDragHelper.Callback {
-
-        @Override
-        public void onViewPositionChanged(View changedView, int left, int top,
-                                          int dx, int dy) {
-            onViewPosChanged((CardItemView) changedView);
+    private CardItemView obtainCardItemView(int viewType) {
+        if (prewarmedViews.size() > 0) {
+            return prewarmedViews.remove(prewarmedViews.size() - 1);
         }
+        return createCardItemView(viewType);
+    }
 
-        @Override
-        public boolean tryCaptureView(View child, int pointerId) {
-            // 如果数据List为空，或者子View不可见，则不予处理
-
-            if (adapter == null || adapter.getCount() == 0
-                    || child.getVisibility() != View.VISIBLE || child.getScaleX() <= 1.0f - SCALE_STEP) {
-                // 一般来讲，如果拖动的是第三层、或者第四层的View，则直接禁止
-                // 此处用getScale的用法来巧妙回避
-                return false;
-            }
-
-            if (btnLock) {
-                return false;
-            }
+    private CardItemView createCardItemView(int viewType) {
+        CardItemView itemView = new CardItemView(getContext());
+        itemView.setParentView(this);
+        inflateContent(itemView, viewType);
+        return itemView;
+    }
 
-            // 1. 只有顶部的View才允许滑动
-            int childIndex = viewList.indexOf(child);
-            if (childIndex > 0) {
-                return false;
-            }
+    private void inflateContent(final CardItemView itemView, final int viewType) {
+        if (!asyncInflateEnabled) {
+            itemView.bindLayoutResId(adapter.getLayoutId(viewType), viewType);
+            return;
+        }
 
-            // 2. 获取可滑动区域
-            ((CardItemView) child).onStartDragging();
-            if (draggableArea == null) {
-                draggableArea = adapter.obtainDraggableArea(child);
+        // 后台线程inflate，完成后回到主线程添加
+        if (null == asyncInflater) {
+            asyncInflater = new AsyncLayoutInflater(getContext());
+        }
+        itemView.setInflatingViewType(viewType);
+        final int generation = cardGeneration;
+        asyncInflater.inflate(adapter.getLayoutId(viewType), null, new AsyncLayoutInflater.OnInflateFinishedListener() {
+            @Override
+            public void onInflateFinished(View view, int resid, ViewGroup parent) {
+                if (generation != cardGeneration) {
+                    // 卡片已被丢弃（换了adapter或者层数），结果属于旧的布局，直接丢掉
+                    return;
+                }
+                onContentInflated(itemView, view, viewType);
             }
+        });
+    }
 
+    /**
+     * 确保卡片的内容是指定的类型，类型不同时把旧内容放回回收池，优先从池中取出新内容
+     */
+    private void ensureViewType(CardItemView itemView, int viewType) {
+        if (itemView.getViewType() == viewType) {
+            // 类型相同，或者该类型正在inflate
+            return;
+        }
+        contentPool.recycle(itemView);
+        if (!contentPool.attachTo(itemView, viewType)) {
+            inflateContent(itemView, viewType);
+        }
+    }
 
-            // 3. 判断是否可滑动
-            boolean shouldCapture = true;
-            if (null != draggableArea) {
-                shouldCapture = draggableArea.contains(downPoint.x, downPoint.y);
+    /**
+     * 异步inflate完成，补上内容未就绪期间被推迟的数据绑定
+     */
+    private void onContentInflated(CardItemView itemView, View contentView, int viewType) {
+        if (itemView.isContentReady() || itemView.getViewType() != viewType) {
+            // inflate期间卡片已经换成了别的类型，结果留给以后用
+            contentPool.put(viewType, contentView, null);
+            return;
+        }
+        itemView.attachContentView(contentView, viewType);
+        int index = itemView.getPendingBindIndex();
+        itemView.setPendingBindIndex(-1);
+        if (null != adapter && index >= 0 && index < adapter.getCount()) {
+            long startNanos = null != swipeMetricsListener ? System.nanoTime() : 0;
+            adapter.bindView(itemView, index);
+            if (null != swipeMetricsListener) {
+                SwipeMetrics metrics = bindMetrics(itemView);
+                if (null != metrics) {
+                    metrics.addBindNanos(System.nanoTime() - startNanos);
+                }
             }
+        }
+        onPendingBindDone(itemView);
+        drainSwipeQueue();
+    }
 
-            // 4. 如果确定要滑动，就让touch事件交给自己消费
-            if (shouldCapture) {
-                getParent().requestDisallowInterceptTouchEvent(shouldCapture);
+    /**
+     * 绑定数据，卡片内容尚未inflate完成时推迟到完成后再绑定
+     */
+    private void bindCard(CardItemView itemView, int index) {
+        unboundViews.remove(itemView);
+        ensureViewType(itemView, adapter.getItemViewType(index));
+        if (!itemView.isContentReady()) {
+            itemView.setPendingBindIndex(index);
+        } else if (null != swipeMetricsListener) {
+            long startNanos = System.nanoTime();
+            adapter.bindView(itemView, index);
+            SwipeMetrics metrics = bindMetrics(itemView);
+            if (null != metrics) {
+                metrics.addBindNanos(System.nanoTime() - startNanos);
             }
-            return shouldCapture;
+        } else {
+            adapter.bindView(itemView, index);
         }
-
-        @Override
-        public int getViewHorizontalDragRange(View child) {
-            // 这个用来控制拖拽过程中松手后，自动滑行的速度
-            return 256;
+        if (itemView.isContentReady()) {
+            itemView.invalidateSnapshot();
+            onPendingBindDone(itemView);
         }
+    }
 
-        @Override
-        public void onViewReleased(View releasedChild, float xvel, float yvel) {
-            animToSide((CardItemView) releasedChild, (int) xvel, (int) yvel);
+    /**
+     * 推迟绑定：记录待绑定的index，之后每帧绑定一张
+     */
+    private void scheduleBind(CardItemView itemView, int index) {
+        unboundViews.remove(itemView);
+        itemView.setPendingBindIndex(index);
+        if (!pendingBindViews.contains(itemView)) {
+            pendingBindViews.add(itemView);
         }
+        postRebind();
+    }
 
-        @Override
-        public int clampViewPositionHorizontal(View child, int left, int dx) {
-            return left;
+    /**
+     * 露出的卡片（飞出中的卡片之下visibleCount层以内）立即绑定，底部备用的卡片推迟到后续帧
+     */
+    private void bindOrSchedule(CardItemView itemView, int slot, int index) {
+        if (slot < releasedViewList.size() + visibleCount) {
+            pendingBindViews.remove(itemView);
+            itemView.setPendingBindIndex(-1);
+            bindCard(itemView, index);
+        } else {
+            scheduleBind(itemView, index);
         }
+    }
 
-        @Override
-        public int clampViewPositionVertical(View child, int top, int dy) {
-            return top;
+    /**
+     * slot位次的卡片开始拖动或者飞出，它以及随之靠拢、渐显的下层卡片如有推迟的绑定立即完成
+     */
+    private void flushMovingViews(int slot) {
+        for (int level = 0; level <= visibleCount && slot + level < viewList.size(); level++) {
+            flushPendingBind(viewList.get(slot + level));
         }
     }
 
-
-    public void onViewPosChanged(CardItemView changedView) {
-        // 调用offsetLeftAndRight导致viewPosition改变，会调到此处，所以此处对index做保护处理
-        int index = viewList.indexOf(changedView);
-        if (index + 2 > viewList.size()) {
-            return;
+    private void postRebind() {
+        if (!rebindPosted) {
+            rebindPosted = true;
+            ViewCompat.postOnAnimation(this, rebindRunnable);
         }
-
-        processLinkageView(changedView);
     }
 
     /**
-     * 对View重新排序
+     * 卡片即将露出，如有推迟的绑定立即完成
      */
-    private void orderViewStack() {
-        if (releasedViewList.size() == 0) {
-            return;
+    private void flushPendingBind(CardItemView itemView) {
+        if (pendingBindViews.remove(itemView) || unboundViews.remove(itemView)) {
+            bindPendingCard(itemView);
         }
+    }
 
-        CardItemView changedView = (CardItemView) releasedViewList.get(0);
-        if (changedView.getLeft() == initCenterViewX) {
-            releasedViewList.remove(0);
+    /**
+     * 内存紧张时解绑备用的卡片，界面不可见时解绑顶层以外的卡片，通过{@link CardAdapter#unbindView(View, int)}释放图片等资源，
+     * 这些卡片会在拖动、飞出或者重新可见时再绑定；面板已自动注册系统回调，一般无需手动调用
+     *
+     * @param level {@link ComponentCallbacks2}中的TRIM_MEMORY_*
+     */
+    public void trimMemory(int level) {
+        if (null == adapter || level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
             return;
         }
 
-        // 1. 消失的卡片View位置重置，由于大多手机会重新调用onLayout函数，所以此处大可以不做处理，不信你注释掉看看
-        changedView.offsetLeftAndRight(initCenterViewX
-                - changedView.getLeft());
-        changedView.offsetTopAndBottom(initCenterViewY
-                - changedView.getTop() + yOffsetStep * 2);
-        float scale = 1.0f - SCALE_STEP * 2;
-        changedView.setScaleX(scale);
-        changedView.setScaleY(scale);
-        changedView.setAlpha(0);
-
-        // 2. 卡片View在ViewGroup中的顺次调整
-        LayoutParams lp = changedView.getLayoutParams();
-        removeViewInLayout(changedView);
-        addViewInLayout(changedView, 0, lp, true);
-
-        // 3. changedView填充新数据
-        int newIndex = isShowing + 4;
-        if (newIndex < adapter.getCount()) {
-            adapter.bindView(changedView, newIndex);
-        } else {
-            changedView.setVisibility(View.INVISIBLE);
+        // 1. 快照Bitmap全部释放
+        for (int i = 0; i < viewList.size(); i++) {
+            viewList.get(i).releaseSnapshot();
         }
+        snapshotPool.clear();
 
-        // 4. viewList中的卡片view的位次调整
-        viewList.remove(changedView);
-        viewList.add(changedView);
-        releasedViewList.remove(0);
-
-        // 5. 更新showIndex、接口回调
-        if (isShowing + 1 < adapter.getCount()) {
-            isShowing++;
-        }
-        if (null != cardSwitchListener) {
-            cardSwitchListener.onShow(isShowing);
+        // 2. 界面可见时（TRIM_MEMORY_RUNNING_*）只解绑底部备用的卡片，露出一部分的卡片保持绑定；
+        // 界面不可见时解绑顶层以外的所有卡片，重新可见时再绑定
+        int fromSlot = level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN ? 1 : visibleCount;
+        fromSlot += releasedViewList.size();
+        int count = adapter.getCount();
+        for (int i = fromSlot; i < viewList.size(); i++) {
+            CardItemView itemView = viewList.get(i);
+            int index = isShowing + i;
+            if (index >= count || itemView.getVisibility() != View.VISIBLE || !itemView.isContentReady()
+                    || pendingBindViews.contains(itemView) || unboundViews.contains(itemView)
+                    || itemView == mDragHelper.getCapturedView()) {
+                // 没有绑定过数据，或者正在使用中
+                continue;
+            }
+            adapter.unbindView(itemView, index);
+            itemView.setPendingBindIndex(index);
+            unboundViews.add(itemView);
         }
     }
 
     /**
-     * 顶层卡片View位置改变，底层的位置需要调整
-     *
-     * @param changedView 顶层的卡片view
+     * 解绑过的卡片即将露出，露出的立即重新绑定，备用的推迟到后续帧逐张绑定
      */
-    private void processLinkageView(View changedView) {
-        int changeViewLeft = changedView.getLeft();
-        int changeViewTop = changedView.getTop();
-        int distance = Math.abs(changeViewTop - initCenterViewY)
-                + Math.abs(changeViewLeft - initCenterViewX);
-        float rate = distance / (float) MAX_SLIDE_DISTANCE_LINKAGE;
-
-        float rate1 = rate;
-        float rate2 = rate - 0.1f;
-
-        if (rate > 1) {
-            rate1 = 1;
+    private void rebindUnboundViews() {
+        while (unboundViews.size() > 0) {
+            CardItemView itemView = unboundViews.get(0);
+            bindOrSchedule(itemView, itemView.getStackIndex(), itemView.getPendingBindIndex());
         }
+    }
 
-        if (rate2 < 0) {
-            rate2 = 0;
-        } else if (rate2 > 1) {
-            rate2 = 1;
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        attachedToWindow = true;
+        if (!trimCallbacksRegistered) {
+            trimCallbacksRegistered = true;
+            getContext().getApplicationContext().registerComponentCallbacks(trimCallbacks);
+        }
+        if (registerCardDataObserver() && viewList.size() > 0) {
+            // 离开窗口期间收不到数据变化，重新挂上时整体刷新一次
+            onAdapterDataChanged();
+        }
+        if (pendingBindViews.size() > 0) {
+            postRebind();
         }
-
-        ajustLinkageViewItem(changedView, rate1, 1);
-        ajustLinkageViewItem(changedView, rate2, 2);
-
-        CardItemView bottomCardView = viewList.get(viewList.size() - 1);
-        bottomCardView.setAlpha(rate2);
     }
 
-    // 由index对应view变成index-1对应的view
-    private void ajustLinkageViewItem(View changedView, float rate, int index) {
-        int changeIndex = viewList.indexOf(changedView);
-        int initPosY = yOffsetStep * index;
-        float initScale = 1 - SCALE_STEP * index;
-
-        int nextPosY = yOffsetStep * (index - 1);
-        float nextScale = 1 - SCALE_STEP * (index - 1);
-
-        int offset = (int) (initPosY + (nextPosY - initPosY) * rate);
-        float scale = initScale + (nextScale - initScale) * rate;
+    @Override
+    protected void onDetachedFromWindow() {
+        attachedToWindow = false;
+        if (trimCallbacksRegistered) {
+            trimCallbacksRegistered = false;
+            getContext().getApplicationContext().unregisterComponentCallbacks(trimCallbacks);
+        }
+        // adapter的生命周期可能比面板长，不能让它通过observer持有面板
+        unregisterCardDataObserver();
+        settleAllAnimations();
+        removeCallbacks(rebindRunnable);
+        rebindPosted = false;
+        if (metricsFramePosted) {
+            metricsFramePosted = false;
+            ChoreographerCompat.getInstance().removeFrameCallback(metricsFrameCallback);
+        }
+        super.onDetachedFromWindow();
+    }
 
-        View ajustView = viewList.get(changeIndex + index);
-        ajustView.offsetTopAndBottom(offset - ajustView.getTop()
-                + initCenterViewY);
-        ajustView.setScaleX(scale);
-        ajustView.setScaleY(scale);
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (visibility == View.VISIBLE) {
+            rebindUnboundViews();
+        } else {
+            settleAllAnimations();
+        }
     }
 
     /**
-     * 松手时处理滑动到边缘的动画
+     * 面板离开窗口或者不可见：拖动中的卡片回到原位，飞出、联动、回弹、渐显动画全部直接落到终点，
+     * 重新可见时卡片堆叠处于静止状态，可以直接继续操作
      */
-    private void animToSide(CardItemView changedView, int xvel, int yvel) {
-        int finalX = initCenterViewX;
-        int finalY = initCenterViewY;
-        int flyType = -1;
-
-        // 1. 下面这一坨计算finalX和finalY，要读懂代码需要建立一个比较清晰的数学模型才能理解，不信拉倒
-        int dx = changedView.getLeft() - initCenterViewX;
-        int dy = changedView.getTop() - initCenterViewY;
-
-        // yvel < xvel * xyRate则允许以速度计算偏移
-        final float xyRate = 3f;
-        if (xvel > X_VEL_THRESHOLD && Math.abs(yvel) < xvel * xyRate) {
-            // x正方向的速度足够大，向右滑动消失
-            finalX = allWidth;
-            finalY = yvel * (childWith + changedView.getLeft()) / xvel + changedView.getTop();
-            flyType = VANISH_TYPE_RIGHT;
-        } else if (xvel < -X_VEL_THRESHOLD && Math.abs(yvel) < -xvel * xyRate) {
-            // x负方向的速度足够大，向左滑动消失
-            finalX = -childWith;
-            finalY = yvel * (childWith + changedView.getLeft()) / (-xvel) + changedView.getTop();
-            flyType = VANISH_TYPE_LEFT;
-        } else if (dx > X_DISTANCE_THRESHOLD && Math.abs(dy) < dx * xyRate) {
-            // x正方向的位移足够大，向右滑动消失
-            finalX = allWidth;
-            finalY = dy * (childWith + initCenterViewX) / dx + initCenterViewY;
-            flyType = VANISH_TYPE_RIGHT;
-        } else if (dx < -X_DISTANCE_THRESHOLD && Math.abs(dy) < -dx * xyRate) {
-            // x负方向的位移足够大，向左滑动消失
-            finalX = -childWith;
-            finalY = dy * (childWith + initCenterViewX) / (-dx) + initCenterViewY;
-            flyType = VANISH_TYPE_LEFT;
+    private void settleAllAnimations() {
+        swipeQueueSize = 0;
+        tapCandidate = false;
+        CardItemView draggingView = null;
+        if (mDragHelper.getViewDragState() == ViewDragHelper.STATE_DRAGGING) {
+            draggingView = (CardItemView) mDragHelper.getCapturedView();
+            // 被打断的拖动不算一次滑动
+            draggingView.getSwipeMetrics().reset();
+            // abort不会回调onViewReleased：与松手时一样，先落地尚未提交的拖动位置，去掉预测的超前量
+            commitFrame();
+            draggingView.setTranslationX(0);
+            draggingView.setTranslationY(0);
+            mDragHelper.abort();
         }
-
-        // 如果斜率太高，就折中处理
-        if (finalY > allHeight) {
-            finalY = allHeight;
-        } else if (finalY < -allHeight / 2) {
-            finalY = -allHeight / 2;
+        finishPendingVanish();
+        if (null != draggingView) {
+            draggingView.animTo(initCenterViewX, initCenterViewY);
         }
-
-        // 如果没有飞向两侧，而是回到了中间，需要谨慎处理
-        if (finalX == initCenterViewX) {
-            changedView.animTo(initCenterViewX, initCenterViewY);
-        } else {
-            // 2. 向两边消失的动画
-            releasedViewList.add(changedView);
-            if (mDragHelper.smoothSlideViewTo(changedView, finalX, finalY)) {
-                ViewCompat.postInvalidateOnAnimation(this);
-            }
-
-            // 3. 消失动画即将进行，listener回调
-            if (flyType >= 0 && cardSwitchListener != null) {
-                cardSwitchListener.onCardVanish(isShowing, flyType);
-            }
+        for (int i = 0; i < viewList.size(); i++) {
+            viewList.get(i).stopAnimations();
         }
+        commitFrame();
+        releaseLayers();
+        removeCallbacks(frameCommitRunnable);
+        frameCommitPosted = false;
     }
 
     /**
-     * 点击按钮消失动画
+     * 丢弃已经创建的所有卡片，下一次layout时重新创建、绑定
      */
-    private void vanishOnBtnClick(int type) {
-        View animateView = viewList.get(0);
-        if (animateView.getVisibility() != View.VISIBLE || releasedViewList.contains(animateView)) {
-            return;
+    private void discardCards() {
+        cardGeneration++;
+        finishPendingVanish();
+        cancelPrefetch();
+        releasedViewList.clear();
+        pendingBindViews.clear();
+        unboundViews.clear();
+        releaseLayers();
+        for (int i = 0; i < viewList.size(); i++) {
+            // 卡片不会再绑定，已经结束的滑动直接回调
+            onPendingBindDone(viewList.get(i));
+            viewList.get(i).destroy();
         }
-
-        int finalX = 0;
-        int extraVanishDistance = 100; // 为加快vanish的速度，额外添加消失的距离
-        if (type == VANISH_TYPE_LEFT) {
-            finalX = -childWith - extraVanishDistance;
-        } else if (type == VANISH_TYPE_RIGHT) {
-            finalX = allWidth + extraVanishDistance;
+        for (int i = 0; i < prewarmedViews.size(); i++) {
+            prewarmedViews.get(i).destroy();
         }
+        removeAllViews();
+        viewList.clear();
+        prewarmedViews.clear();
+        hitRegions.clear();
+        contentPool.clear();
+        snapshotPool.clear();
+    }
 
-        if (finalX != 0) {
-            releasedViewList.add(animateView);
-            if (mDragHelper.smoothSlideViewTo(animateView, finalX, initCenterViewY + allHeight / 2)) {
-                ViewCompat.postInvalidateOnAnimation(this);
-            }
+    /**
+     * observer只在面板处于窗口中、且设置了adapter时注册
+     *
+     * @return 本次是否新注册
+     */
+    private boolean registerCardDataObserver() {
+        if (cardDataObserverRegistered || !attachedToWindow || null == adapter) {
+            return false;
         }
+        cardDataObserverRegistered = true;
+        adapter.registerCardDataObserver(cardDataObserver);
+        return true;
+    }
 
-        if (type >= 0 && cardSwitchListener != null) {
-            cardSwitchListener.onCardVanish(isShowing, type);
+    private void unregisterCardDataObserver() {
+        if (cardDataObserverRegistered) {
+            cardDataObserverRegistered = false;
+            adapter.unregisterCardDataObserver(cardDataObserver);
         }
     }
 
-    @Override
-    public void computeScroll() {
-        if (mDragHelper.continueSettling(true)) {
-            ViewCompat.postInvalidateOnAnimation(this);
-        } else {
-            // 动画结束
-            if (mDragHelper.getViewDragState() == ViewDragHelper.STATE_IDLE) {
-                orderViewStack();
-                btnLock = false;
-            }
+    private void bindPendingCard(CardItemView itemView) {
+        int index = itemView.getPendingBindIndex();
+        itemView.setPendingBindIndex(-1);
+        if (null != adapter && index >= 0 && index < adapter.getCount()) {
+            bindCard(itemView, index);
         }
     }
 
-    @Override
-    public boolean dispatchTouchEvent(MotionEvent ev) {
-        int action = ev.getActionMasked();
-        // 按下时保存坐标信息
-        if (action == MotionEvent.ACTION_DOWN) {
-            this.downPoint.x = (int) ev.getX();
-            this.downPoint.y = (int) ev.getY();
+    /**
+     * 预热卡片View，可在面板layout之前调用，提前完成inflate工作
+     */
+    public void prewarmCardViews() {
+        if (null == adapter || getChildCount() > 0) {
+            return;
+        }
+        // 第k个预热的View会被放在第k层，按该层的数据类型inflate
+        int count = adapter.getCount();
+        while (prewarmedViews.size() < getViewCount()) {
+            int index = isShowing + prewarmedViews.size();
+            prewarmedViews.add(createCardItemView(index < count ? adapter.getItemViewType(index) : 0));
         }
-        return super.dispatchTouchEvent(ev);
+    }
+
+    /**
+     * 设置是否在后台线程inflate卡片内容，需在setAdapter之前调用
+     */
+    public void setAsyncInflateEnabled(boolean asyncInflateEnabled) {
+        this.asyncInflateEnabled = asyncInflateEnabled;
+    }
+
+    /**
+     * viewList顺序变化后，刷新每个卡片缓存的位次
+     */
+    private void refreshStackIndex() {
+        for (int i = 0; i < viewList.size(); i++) {
+            viewList.get(i).setStackIndex(i);
+        }
+        invalidateSnapshotState();
+    }
+
+    /**
+     * 卡片的位次、拖动或飞出状态变化后，重新决定哪些卡片绘制快照
+     */
+    private void invalidateSnapshotState() {
+        if (!snapshotEnabled) {
+            return;
+        }
+        for (int i = 0; i < viewList.size(); i++) {
+            viewList.get(i).invalidate();
+        }
+    }
+
+    /**
+     * 快照模式下，顶层（包括正在拖动、飞出的）以外的卡片绘制快照
+     */
+    boolean shouldDrawSnapshot(CardItemView itemView) {
+        return snapshotEnabled && itemView.isContentReady() && !itemView.isVanishing()
+                && itemView.getStackIndex() > releasedViewList.size()
+                && itemView != mDragHelper.getCapturedView();
+    }
+
+    float getSnapshotScale() {
+        return snapshotScale;
+    }
+
+    Bitmap acquireSnapshotBitmap(int width, int height) {
+        return snapshotPool.acquire(width, height);
+    }
+
+    void releaseSnapshotBitmap(Bitmap bitmap) {
+        snapshotPool.release(bitmap);
+    }
+
+    /**
+     * 这是viewdraghelper拖拽效果的主要逻辑
+     */
+    private class DragHelperCallback extends ViewDragHelper.Callback {
+
+        @Override
+        public void onViewDragStateChanged(int state) {
+            if (state == ViewDragHelper.STATE_DRAGGING) {
+                rebindUnboundViews();
+                flushMovingViews(((CardItemView) mDragHelper.getCapturedView()).getStackIndex());
+                promoteLayers();
+                if (null != swipeMetricsListener) {
+                    metricsOf((CardItemView) mDragHelper.getCapturedView()).onDragStart();
+                    postMetricsFrame();
+                }
+            } else if (state == ViewDragHelper.STATE_IDLE && releasedViewList.isEmpty()) {
+                // 飞出动画期间保留硬件层，动画结束后再释放
+                if (springSystem.getIsIdle()) {
+                    releaseLayers();
+                }
+                // 拖动后回到中间，继续执行拖动期间排队的飞出
+                drainSwipeQueue();
+            }
+        }
+
+        @Override
+        public boolean tryCaptureView(View child, int pointerId) {
+            // 如果数据List为空，或者子View不可见，则不予处理
+
+            if (adapter == null || adapter.getCount() == 0 || !((CardItemView) child).isContentReady()
+                    || child.getVisibility() != View.VISIBLE) {
+                return false;
+            }
+            if (releasedViewList.isEmpty() && child.getScaleX() <= 1.0f - SCALE_STEP) {
+                // 一般来讲，如果拖动的是第三层、或者第四层的View，则直接禁止
+                // 此处用getScale的用法来巧妙回避
+                return false;
+            }
+
+            // 1. 只有顶部的View才允许滑动，飞出中的卡片不算在内
+            int childIndex = ((CardItemView) child).getStackIndex();
+            if (childIndex != releasedViewList.size() || childIndex >= visibleCount) {
+                return false;
+            }
+
+            // 2. 按下时所在的区域已在ACTION_DOWN时判定
+            ((CardItemView) child).onStartDragging();
+
+            // 3. 判断是否可滑动
+            boolean shouldCapture = CardHitRegions.isDraggable(downZone);
+
+            // 4. 如果确定要滑动，就让touch事件交给自己消费
+            if (shouldCapture) {
+                getParent().requestDisallowInterceptTouchEvent(shouldCapture);
+                for (int i = 0; i < viewList.size(); i++) {
+                    // 属性动画模式下的靠拢动画直接完成，拖动期间由联动接管
+                    viewList.get(i).endLinkageAnimation();
+                }
+                if (childIndex > 0) {
+                    // 上面的卡片还在飞出，联动尚未完成，直接补齐为顶层的大小
+                    child.setScaleX(1);
+                    child.setScaleY(1);
+                    child.invalidate();
+                }
+            }
+            return shouldCapture;
+        }
+
+        @Override
+        public int getOrderedChildIndex(int index) {
+            // 飞出中的卡片排到最后查找，手指落在它们上面时也能抓住下面的卡片
+            int releasedCount = releasedViewList.size();
+            if (releasedCount == 0 || releasedCount >= getChildCount()) {
+                return index;
+            }
+            int childCount = getChildCount();
+            if (index >= releasedCount) {
+                return index - releasedCount;
+            }
+            return childCount - releasedCount + index;
+        }
+
+        @Override
+        public int getViewHorizontalDragRange(View child) {
+            // 这个用来控制拖拽过程中松手后，自动滑行的速度
+            return 256;
+        }
+
+        @Override
+        public void onViewReleased(View releasedChild, float xvel, float yvel) {
+            // 松手前先把尚未提交的拖动位置落地，去掉预测的超前量
+            commitFrame();
+            releasedChild.setTranslationX(0);
+            releasedChild.setTranslationY(0);
+            if (dragTrackingMode != DRAG_TRACKING_DEFAULT && dragTracker.computeVelocity(trackedVelocity)) {
+                xvel = trackedVelocity[0];
+                yvel = trackedVelocity[1];
+            }
+            animToSide((CardItemView) releasedChild, xvel, yvel);
+        }
+
+        @Override
+        public int clampViewPositionHorizontal(View child, int left, int dx) {
+            if (mDragHelper.getViewDragState() != ViewDragHelper.STATE_DRAGGING) {
+                // shouldInterceptTouchEvent中依赖返回值判断能否拖动
+                return left;
+            }
+            // 拖动中：x、y先记录为待提交位置，view本身保持不动，帧回调中一次性提交
+            CardItemView itemView = (CardItemView) child;
+            itemView.setPendingPos(itemView.getPendingLeft() + dx, itemView.getPendingTop());
+            requestPositionCommit(itemView);
+            return child.getLeft();
+        }
+
+        @Override
+        public int clampViewPositionVertical(View child, int top, int dy) {
+            if (mDragHelper.getViewDragState() != ViewDragHelper.STATE_DRAGGING) {
+                return top;
+            }
+            CardItemView itemView = (CardItemView) child;
+            itemView.setPendingPos(itemView.getPendingLeft(), itemView.getPendingTop() + dy);
+            requestPositionCommit(itemView);
+            return child.getTop();
+        }
+    }
+
+
+    public void onViewPosChanged(CardItemView changedView) {
+        // 调用offsetLeftAndRight导致viewPosition改变，会调到此处，所以此处对index做保护处理
+        int index = changedView.getStackIndex();
+        if (index < 0 || index + 1 >= viewList.size()) {
+            return;
+        }
+
+        processLinkageView(changedView);
+    }
+
+    /**
+     * spring驱动卡片位置改变，仅做标记，位置提交与联动在本帧积分结束后统一处理
+     */
+    void onSpringPosChanged(CardItemView changedView) {
+        markLinkageView(changedView);
+    }
+
+    /**
+     * 飞出动画驱动卡片位置改变，立即提交
+     */
+    void onExitPosChanged(CardItemView changedView) {
+        markLinkageView(changedView);
+        commitFrame();
+        // 下面的卡片正在拖动时联动由它驱动，飞出的卡片仍要每帧提交自己的位置
+        changedView.commitPendingPos();
+    }
+
+    /**
+     * 多张卡片同时移动时，由位次最深（最新开始移动）的卡片驱动联动
+     */
+    private void markLinkageView(CardItemView changedView) {
+        if (changedView.getStackIndex() < deepestActiveIndex()) {
+            // 下面还有卡片正在拖动或飞出，联动由它驱动
+            return;
+        }
+        if (null == pendingLinkageView || changedView.getStackIndex() > pendingLinkageView.getStackIndex()) {
+            pendingLinkageView = changedView;
+        }
+    }
+
+    /**
+     * 正在拖动或飞出的卡片中最深的位次，没有时返回-1
+     */
+    private int deepestActiveIndex() {
+        int deepest = -1;
+        if (releasedViewList.size() > 0) {
+            deepest = ((CardItemView) releasedViewList.get(releasedViewList.size() - 1)).getStackIndex();
+        }
+        View capturedView = mDragHelper.getCapturedView();
+        if (null != capturedView && mDragHelper.getViewDragState() != ViewDragHelper.STATE_IDLE) {
+            deepest = Math.max(deepest, ((CardItemView) capturedView).getStackIndex());
+        }
+        return deepest;
+    }
+
+    /**
+     * 拖动导致卡片位置改变，在下一个动画帧统一提交
+     */
+    private void requestPositionCommit(CardItemView changedView) {
+        markLinkageView(changedView);
+        if (!frameCommitPosted) {
+            frameCommitPosted = true;
+            ViewCompat.postOnAnimation(this, frameCommitRunnable);
+        }
+    }
+
+    /**
+     * 提交本帧所有卡片的待定位置，并只做一次联动
+     */
+    private void commitFrame() {
+        if (null == pendingLinkageView) {
+            return;
+        }
+        CardItemView changedView = pendingLinkageView;
+        pendingLinkageView = null;
+
+        for (int i = 0; i < viewList.size(); i++) {
+            viewList.get(i).commitPendingPos();
+        }
+        if (dragTrackingMode == DRAG_TRACKING_PREDICTIVE) {
+            applyDragPrediction();
+        }
+        onViewPosChanged(changedView);
+        linkageCommitCount++;
+    }
+
+    /**
+     * 拖动中的卡片按当前速度超前到下一帧的预测位置，超前量放在translation上，不影响真实位置
+     */
+    private void applyDragPrediction() {
+        View capturedView = mDragHelper.getCapturedView();
+        if (null == capturedView || mDragHelper.getViewDragState() != ViewDragHelper.STATE_DRAGGING) {
+            return;
+        }
+        if (frameIntervalSeconds <= 0) {
+            WindowManager windowManager = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
+            float refreshRate = null == windowManager ? 60 : windowManager.getDefaultDisplay().getRefreshRate();
+            frameIntervalSeconds = 1 / Math.max(30, refreshRate);
+        }
+
+        dragTracker.computeVelocity(trackedVelocity);
+        float maxLead = childWith * MAX_PREDICTION_RATE;
+        float leadX = trackedVelocity[0] * frameIntervalSeconds;
+        float leadY = trackedVelocity[1] * frameIntervalSeconds;
+        capturedView.setTranslationX(Math.max(-maxLead, Math.min(maxLead, leadX)));
+        capturedView.setTranslationY(Math.max(-maxLead, Math.min(maxLead, leadY)));
+    }
+
+    /**
+     * 已提交的联动次数，每帧最多增加1，供测试校验
+     */
+    int getLinkageCommitCount() {
+        return linkageCommitCount;
+    }
+
+    SpringSystem getSpringSystem() {
+        return springSystem;
+    }
+
+    /**
+     * 卡片本次滑动的性能数据，多张卡片同时飞出时各自统计，仅在设置了listener时调用
+     */
+    private SwipeMetrics metricsOf(CardItemView itemView) {
+        SwipeMetrics metrics = itemView.getSwipeMetrics();
+        metrics.setFrameBudgetNanos(frameBudgetNanos);
+        return metrics;
+    }
+
+    /**
+     * bindView耗时计入的滑动：卡片自己飞出后推迟的绑定计入它自己，其次是重排中的卡片；
+     * 其他时候的绑定（数据变化等）不属于任何一次滑动
+     */
+    private SwipeMetrics bindMetrics(CardItemView itemView) {
+        if (itemView.getSwipeMetrics().isAwaitingBind()) {
+            return metricsOf(itemView);
+        }
+        if (null != orderingView) {
+            return metricsOf(orderingView);
+        }
+        return null;
+    }
+
+    /**
+     * 卡片推迟的绑定已经完成或者不再需要，它上一次滑动的性能数据在此时回调
+     */
+    private void onPendingBindDone(CardItemView itemView) {
+        if (null == swipeMetricsListener) {
+            return;
+        }
+        SwipeMetrics metrics = itemView.getSwipeMetrics();
+        if (metrics.isAwaitingBind()) {
+            swipeMetricsListener.onSwipeMetrics(metrics);
+            metrics.reset();
+        }
+    }
+
+    /**
+     * 有滑动在统计时，每个Choreographer帧回调一次
+     */
+    private void postMetricsFrame() {
+        if (!metricsFramePosted) {
+            metricsFramePosted = true;
+            ChoreographerCompat.getInstance().postFrameCallback(metricsFrameCallback);
+        }
+    }
+
+    /**
+     * 所有正在统计的滑动各记一帧
+     *
+     * @return 是否还有滑动在统计
+     */
+    private boolean onMetricsFrame(long frameTimeNanos) {
+        boolean active = false;
+        for (int i = 0; i < viewList.size(); i++) {
+            SwipeMetrics metrics = viewList.get(i).getSwipeMetrics();
+            metrics.onFrame(frameTimeNanos);
+            active |= metrics.isActive();
+        }
+        return active;
+    }
+
+    /**
+     * 对View重新排序
+     */
+    private void orderViewStack() {
+        if (releasedViewList.size() == 0) {
+            return;
+        }
+        long startNanos = null != swipeMetricsListener ? System.nanoTime() : 0;
+
+        CardItemView changedView = (CardItemView) releasedViewList.get(0);
+        // 飞出动画还在进行时直接落到终点，避免重排之后动画继续改变它的位置
+        changedView.endExitAnimation();
+        if (!changedView.isVanishing()) {
+            // 没有飞出（属性动画模式下飞行中的卡片left不变，不能用位置判断）
+            changedView.setVanishType(-1);
+            releasedViewList.remove(0);
+            return;
+        }
+
+        orderingView = changedView;
+
+        // 1. 消失的卡片View位置重置，由于大多手机会重新调用onLayout函数，所以此处大可以不做处理，不信你注释掉看看
+        changedView.offsetLeftAndRight(initCenterViewX
+                - changedView.getLeft());
+        int bottomLevel = visibleCount - 1;
+        changedView.offsetTopAndBottom(initCenterViewY
+                - changedView.getTop() + yOffsetStep * bottomLevel);
+        float scale = 1.0f - SCALE_STEP * bottomLevel;
+        changedView.setScaleX(scale);
+        changedView.setScaleY(scale);
+        changedView.setAlpha(0);
+
+        // 2. 卡片View在ViewGroup中的顺次调整
+        LayoutParams lp = changedView.getLayoutParams();
+        removeViewInLayout(changedView);
+        addViewInLayout(changedView, 0, lp, true);
+
+        // 3. changedView填充新数据，它沉到了最底部，可以推迟到后续帧再绑定
+        int newIndex = isShowing + viewList.size();
+        if (newIndex < adapter.getCount()) {
+            scheduleBind(changedView, newIndex);
+        } else {
+            pendingBindViews.remove(changedView);
+            changedView.setVisibility(View.INVISIBLE);
+        }
+
+        // 4. viewList中的卡片view的位次调整
+        viewList.remove(changedView);
+        viewList.add(changedView);
+        refreshStackIndex();
+        releasedViewList.remove(0);
+        for (int i = 0; i < releasedViewList.size() + visibleCount && i < viewList.size() - 1; i++) {
+            // 露出的卡片不能再等推迟的绑定，沉到底部的changedView仍推迟
+            flushPendingBind(viewList.get(i));
+        }
+        if (releasedViewList.isEmpty() && mDragHelper.getViewDragState() == ViewDragHelper.STATE_IDLE) {
+            // 联动每深一层起步晚0.1，深层的卡片在飞出结束时可能还没靠拢到位，直接补齐
+            snapStackLevels();
+        }
+
+        // 5. 更新showIndex、接口回调
+        pushHistory(isShowing, changedView.getVanishType());
+        changedView.setVanishType(-1);
+        if (isShowing + 1 < adapter.getCount()) {
+            isShowing++;
+        }
+        updatePrefetchWindow();
+        dispatchShow();
+
+        // 6. 一次滑动结束，沉到底部的卡片推迟绑定的，等它自己的bindView完成之后再回调性能数据
+        orderingView = null;
+        if (null != swipeMetricsListener) {
+            SwipeMetrics metrics = metricsOf(changedView);
+            metrics.addOrderStackNanos(System.nanoTime() - startNanos);
+            if (metrics.onSettleEnd()) {
+                metrics.setAwaitingBind(true);
+                if (!pendingBindViews.contains(changedView)) {
+                    onPendingBindDone(changedView);
+                }
+            } else {
+                metrics.reset();
+            }
+        }
+    }
+
+    /**
+     * 所有卡片直接落到各自层级的位置和大小，补上最底层的卡片完全显示
+     */
+    private void snapStackLevels() {
+        for (int i = 0; i < viewList.size(); i++) {
+            CardItemView itemView = viewList.get(i);
+            itemView.endLinkageAnimation();
+            int level = Math.min(i, visibleCount - 1);
+            itemView.offsetTopAndBottom(initCenterViewY + yOffsetStep * level - itemView.getTop());
+            float scale = 1 - SCALE_STEP * level;
+            itemView.setScaleX(scale);
+            itemView.setScaleY(scale);
+            if (i == visibleCount - 1) {
+                itemView.setAlpha(1);
+            }
+        }
+    }
+
+    /**
+     * 顶层卡片变化，通知adapter以及外部监听
+     */
+    private void dispatchShow() {
+        adapter.onCardShow(isShowing);
+        if (null != cardSwitchListener) {
+            cardSwitchListener.onShow(isShowing);
+        }
+    }
+
+    /**
+     * 根据isShowing重新计算预加载窗口，新进入窗口的通知预加载，被跳过的通知取消
+     */
+    private void updatePrefetchWindow() {
+        if (null == adapter) {
+            return;
+        }
+        int start = isShowing + getViewCount();
+        int end = Math.max(start, Math.min(start + prefetchDistance, adapter.getCount()));
+
+        // 1. 离开窗口的index：已成为驻留卡片的交给bindView，其余的取消
+        for (int i = prefetchStart; i < prefetchEnd; i++) {
+            if ((i >= start && i < end) || (i >= isShowing && i < start)) {
+                continue;
+            }
+            adapter.onCancelPrefetch(i);
+        }
+
+        // 2. 新进入窗口的index，通知预加载
+        for (int i = start; i < end; i++) {
+            if (i < prefetchStart || i >= prefetchEnd) {
+                adapter.onPrefetch(i);
+            }
+        }
+        prefetchStart = start;
+        prefetchEnd = end;
+    }
+
+    /**
+     * 取消所有未完成的预加载
+     */
+    private void cancelPrefetch() {
+        if (null != adapter) {
+            for (int i = prefetchStart; i < prefetchEnd; i++) {
+                adapter.onCancelPrefetch(i);
+            }
+        }
+        prefetchStart = 0;
+        prefetchEnd = 0;
+    }
+
+    /**
+     * 顶层卡片View位置改变，底层的位置需要调整
+     *
+     * @param changedView 顶层的卡片view
+     */
+    private void processLinkageView(CardItemView changedView) {
+        int changeViewLeft = changedView.getLeft();
+        int changeViewTop = changedView.getTop();
+        int distance = Math.abs(changeViewTop - initCenterViewY)
+                + Math.abs(changeViewLeft - initCenterViewX);
+        float rate = CardStackMath.linkageRate(distance);
+
+        // 1. 可见的每一层依次向上靠拢，层级越深起步越晚
+        int changeIndex = changedView.getStackIndex();
+        for (int level = 1; level < visibleCount; level++) {
+            if (changeIndex + level >= viewList.size()) {
+                return;
+            }
+            if (viewList.get(changeIndex + level).isVanishing()) {
+                // 正在飞出的卡片不参与联动
+                continue;
+            }
+            ajustLinkageViewItem(changeIndex, CardStackMath.levelRate(rate, level), level);
+        }
+
+        // 2. 第一个备用的view渐显，补上最底层的位置
+        int spareIndex = changeIndex + visibleCount;
+        if (spareIndex < viewList.size()) {
+            viewList.get(spareIndex).setAlpha(CardStackMath.levelRate(rate, Math.max(1, visibleCount - 1)));
+        }
+    }
+
+    // 由index对应view变成index-1对应的view
+    private void ajustLinkageViewItem(int changeIndex, float rate, int index) {
+        int offset = CardStackMath.linkageOffset(yOffsetStep, index, rate);
+        float scale = CardStackMath.linkageScale(SCALE_STEP, index, rate);
+
+        View ajustView = viewList.get(changeIndex + index);
+        ajustView.offsetTopAndBottom(offset - ajustView.getTop()
+                + initCenterViewY);
+        ajustView.setScaleX(scale);
+        ajustView.setScaleY(scale);
+    }
+
+    /**
+     * 松手时处理滑动到边缘的动画
+     */
+    private void animToSide(CardItemView changedView, float xvel, float yvel) {
+        // 1. 计算finalX和finalY
+        int flyType = exitEngine.computeTarget(changedView.getLeft(), changedView.getTop(),
+                initCenterViewX, initCenterViewY, xvel, yvel, childWith, allWidth, allHeight, vanishTarget);
+        int finalX = vanishTarget[0];
+        int finalY = vanishTarget[1];
+
+        // 如果没有飞向两侧，而是回到了中间，需要谨慎处理
+        promoteLayers();
+        if (flyType < 0) {
+            changedView.animTo(initCenterViewX, initCenterViewY);
+            if (null != swipeMetricsListener) {
+                // 回到中间不算一次滑动
+                metricsOf(changedView).reset();
+            }
+        } else {
+            // 2. 向两边消失的动画
+            if (null != swipeMetricsListener) {
+                metricsOf(changedView).onSettleStart();
+                postMetricsFrame();
+            }
+            changedView.setVanishType(flyType);
+            releasedViewList.add(changedView);
+            invalidateSnapshotState();
+            // 以松手时的速度开始飞出，离开面板即结束
+            long duration = exitEngine.computeDuration(changedView.getLeft(), changedView.getTop(),
+                    finalX, finalY, xvel, yvel);
+            startExit(changedView, releasedViewList.size() - 1, finalX, finalY, flyType, duration);
+
+            // 3. 消失动画即将进行，listener回调
+            if (cardSwitchListener != null) {
+                cardSwitchListener.onCardVanish(isShowing, flyType);
+            }
+        }
+    }
+
+    /**
+     * 向左飞出顶层卡片，动画进行中再次调用会排队，依次接力飞出
+     */
+    public void swipeLeft() {
+        swipe(VANISH_TYPE_LEFT);
+    }
+
+    /**
+     * 向右飞出顶层卡片，动画进行中再次调用会排队，依次接力飞出
+     */
+    public void swipeRight() {
+        swipe(VANISH_TYPE_RIGHT);
+    }
+
+    /**
+     * 飞出顶层卡片
+     *
+     * @param type {@link #VANISH_TYPE_LEFT}或{@link #VANISH_TYPE_RIGHT}
+     */
+    public void swipe(int type) {
+        if (type != VANISH_TYPE_LEFT && type != VANISH_TYPE_RIGHT) {
+            return;
+        }
+        if (swipeQueueSize == swipeQueue.length) {
+            // 队列满了，扩容
+            int[] queue = new int[swipeQueue.length * 2];
+            for (int i = 0; i < swipeQueueSize; i++) {
+                queue[i] = swipeQueue[(swipeQueueStart + i) % swipeQueue.length];
+            }
+            swipeQueue = queue;
+            swipeQueueStart = 0;
+        }
+        swipeQueue[(swipeQueueStart + swipeQueueSize) % swipeQueue.length] = type;
+        swipeQueueSize++;
+        drainSwipeQueue();
+    }
+
+    /**
+     * 排队的飞出动作依次执行：前一张还在飞的时候，下一张可见的卡片就开始飞出
+     */
+    private void drainSwipeQueue() {
+        while (swipeQueueSize > 0) {
+            if (null == adapter || mDragHelper.getViewDragState() == ViewDragHelper.STATE_DRAGGING) {
+                // 手指拖动中，等拖动结束再继续
+                return;
+            }
+            int slot = releasedViewList.size();
+            if (slot >= visibleCount || slot >= viewList.size()) {
+                // 可见的卡片都在飞，等最前面的飞完
+                return;
+            }
+            CardItemView animateView = viewList.get(slot);
+            if (animateView.getVisibility() != View.VISIBLE) {
+                // 没有卡片可以飞出了
+                swipeQueueSize = 0;
+                return;
+            }
+            if (!animateView.isContentReady()) {
+                // 内容还在inflate，保留排队的飞出，inflate完成后继续
+                return;
+            }
+
+            int type = swipeQueue[swipeQueueStart];
+            swipeQueueStart = (swipeQueueStart + 1) % swipeQueue.length;
+            swipeQueueSize--;
+            vanishOnBtnClick(animateView, slot, type);
+        }
+    }
+
+    /**
+     * 点击按钮消失动画
+     */
+    private void vanishOnBtnClick(CardItemView animateView, int slot, int type) {
+        int finalX;
+        if (type == VANISH_TYPE_LEFT) {
+            finalX = -childWith;
+        } else {
+            finalX = allWidth;
+        }
+        int finalY = initCenterViewY + allHeight / 2;
+
+        if (null != swipeMetricsListener) {
+            metricsOf(animateView).onSettleStart();
+            postMetricsFrame();
+        }
+        promoteLayers();
+        animateView.setVanishType(type);
+        releasedViewList.add(animateView);
+        invalidateSnapshotState();
+
+        // 接力飞出的卡片可能还在联动途中，先归位到顶层
+        if (slot > 0) {
+            animateView.endLinkageAnimation();
+            animateView.offsetTopAndBottom(initCenterViewY - animateView.getTop());
+            animateView.setScaleX(1);
+            animateView.setScaleY(1);
+        }
+        startExit(animateView, slot, finalX, finalY, type, exitEngine.computeDuration(initCenterViewX,
+                initCenterViewY, finalX, finalY, 0, 0));
+
+        if (cardSwitchListener != null) {
+            cardSwitchListener.onCardVanish(isShowing + slot, type);
+        }
+    }
+
+    /**
+     * 按当前的飞出模式开始飞出动画
+     *
+     * @param slot 飞出卡片的位次
+     */
+    private void startExit(CardItemView exitView, int slot, int finalX, int finalY, int type, long duration) {
+        rebindUnboundViews();
+        flushMovingViews(slot);
+        if (exitMode != EXIT_MODE_PROPERTY) {
+            exitView.startExitAnimation(finalX, finalY, duration);
+            return;
+        }
+
+        float rotation = type == VANISH_TYPE_LEFT ? -EXIT_ROTATION : EXIT_ROTATION;
+        exitView.startPropertyExitAnimation(finalX, finalY, rotation, duration);
+
+        // 下层卡片同时以属性动画靠拢一层，不再逐帧计算联动
+        for (int level = 1; level <= visibleCount; level++) {
+            if (slot + level >= viewList.size()) {
+                break;
+            }
+            CardItemView itemView = viewList.get(slot + level);
+            if (itemView.isVanishing() || itemView == mDragHelper.getCapturedView()) {
+                continue;
+            }
+            int targetLevel = Math.min(level - 1, visibleCount - 1);
+            float targetScale = 1 - SCALE_STEP * targetLevel;
+            // 第一个备用的卡片补上最底层，渐显出来
+            float targetAlpha = level == visibleCount ? 1 : itemView.getAlpha();
+            itemView.animateLinkage(initCenterViewY + yOffsetStep * targetLevel, targetScale, targetAlpha, duration);
+        }
+    }
+
+    /**
+     * 某张卡片飞出动画结束，按顺序重排已经飞完的卡片
+     */
+    void onExitAnimationEnd(CardItemView itemView) {
+        orderFinishedViews();
+    }
+
+    /**
+     * 从最早飞出的卡片开始，依次重排已经飞完的卡片，并继续执行排队的飞出
+     */
+    private void orderFinishedViews() {
+        while (releasedViewList.size() > 0) {
+            CardItemView headView = (CardItemView) releasedViewList.get(0);
+            if (headView.isExitRunning()) {
+                break;
+            }
+            orderViewStack();
+        }
+        drainSwipeQueue();
+        if (releasedViewList.isEmpty()) {
+            releaseLayers();
+        }
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        int action = ev.getActionMasked();
+        // 按下时保存坐标信息
+        if (action == MotionEvent.ACTION_DOWN) {
+            this.downPoint.x = (int) ev.getX();
+            this.downPoint.y = (int) ev.getY();
+            if (!concurrentSwipeEnabled) {
+                // ACTION_DOWN的时候就对view重新排序
+                finishPendingVanish();
+            }
+            classifyDown();
+        } else if (tapCandidate) {
+            if (action == MotionEvent.ACTION_MOVE && Math.abs(ev.getX() - downPoint.x)
+                    + Math.abs(ev.getY() - downPoint.y) > mTouchSlop) {
+                tapCandidate = false;
+            } else if (action == MotionEvent.ACTION_UP) {
+                tapCandidate = false;
+                if (null != cardTapListener) {
+                    cardTapListener.onCardTap(isShowing + releasedViewList.size(), downZone);
+                }
+            } else if (action == MotionEvent.ACTION_CANCEL) {
+                tapCandidate = false;
+            }
+        }
+        if (dragTrackingMode != DRAG_TRACKING_DEFAULT) {
+            dragTracker.addMovement(ev);
+        }
+        return super.dispatchTouchEvent(ev);
+    }
+
+    /**
+     * 判定按下时落在顶层卡片的哪个区域，区域按卡片类型缓存，查找只需遍历该类型的几个区域
+     */
+    private void classifyDown() {
+        downZone = CardHitRegions.ZONE_NONE;
+        tapCandidate = false;
+        int slot = releasedViewList.size();
+        if (null == adapter || slot >= viewList.size()) {
+            return;
+        }
+        CardItemView topView = viewList.get(slot);
+        if (topView.getVisibility() != View.VISIBLE || !topView.isContentReady()) {
+            return;
+        }
+
+        int viewType = topView.getViewType();
+        CardHitRegions regions = hitRegions.get(viewType);
+        if (null == regions) {
+            regions = new CardHitRegions();
+            hitRegions.put(viewType, regions);
+        }
+        if (regions.isStale()) {
+            regions.clear();
+            adapter.obtainHitRegions(topView, regions);
+            regions.setStale(false);
+        }
+        int x = downPoint.x - topView.getLeft();
+        int y = downPoint.y - topView.getTop();
+        if (x < 0 || y < 0 || x >= topView.getWidth() || y >= topView.getHeight()) {
+            return;
+        }
+        downZone = regions.hitTest(x, y);
+        tapCandidate = true;
     }
 
     /* touch事件的拦截与处理都交给mDraghelper来处理 */
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
         boolean shouldIntercept = mDragHelper.shouldInterceptTouchEvent(ev);
-        boolean moveFlag = moveDetector.onTouchEvent(ev);
         int action = ev.getActionMasked();
+        // 轻量的滑动阈值判断：拖动了，touch不往下传递
+        boolean moveFlag = action == MotionEvent.ACTION_MOVE
+                && Math.abs(ev.getX() - downPoint.x) + Math.abs(ev.getY() - downPoint.y) > mTouchSlop;
         if (action == MotionEvent.ACTION_DOWN) {
-            // ACTION_DOWN的时候就对view重新排序
-            if (mDragHelper.getViewDragState() == ViewDragHelper.STATE_SETTLING) {
-                mDragHelper.abort();
+            // 保存初次按下时arrowFlagView的Y坐标
+            // action_down时就让mDragHelper开始工作，否则有时候导致异常
+            mDragHelper.processTouchEvent(ev);
+        }
+
+        return shouldIntercept && moveFlag;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent e) {
+        try {
+            // 统一交给mDragHelper处理，由DragHelperCallback实现拖动效果
+            mDragHelper.processTouchEvent(e);
+        } catch (IllegalArgumentException ex) {
+            // 多指触摸时事件里的pointerIndex可能已经失效（pointerIndex out of range），丢弃这一个事件即可
+        }
+        return true;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // 测量条件没变时，只重新测量自身请求了layout的卡片
+        boolean specChanged = widthMeasureSpec != lastWidthMeasureSpec
+                || heightMeasureSpec != lastHeightMeasureSpec;
+        lastWidthMeasureSpec = widthMeasureSpec;
+        lastHeightMeasureSpec = heightMeasureSpec;
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() != GONE && (specChanged || child.isLayoutRequested())) {
+                measureChild(child, widthMeasureSpec, heightMeasureSpec);
+            }
+        }
+        int maxWidth = MeasureSpec.getSize(widthMeasureSpec);
+        int maxHeight = MeasureSpec.getSize(heightMeasureSpec);
+        setMeasuredDimension(
+                resolveSizeAndState(maxWidth, widthMeasureSpec, 0),
+                resolveSizeAndState(maxHeight, heightMeasureSpec, 0));
+
+        allWidth = getMeasuredWidth();
+        allHeight = getMeasuredHeight();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right,
+                            int bottom) {
+
+        int childCount = getChildCount();
+        // 卡片位置、尺寸可能变化，点击区域下次按下时重新计算
+        for (int i = 0; i < hitRegions.size(); i++) {
+            hitRegions.valueAt(i).setStale(true);
+        }
+        if (!changed && !layoutDirty) {
+            // 面板尺寸、卡片层级都没变，只处理内容尺寸变化的卡片，保持当前位置与缩放
+            for (int i = 0; i < childCount; i++) {
+                View viewItem = viewList.get(i);
+                if (viewItem.isLayoutRequested()) {
+                    int viewLeft = viewItem.getLeft();
+                    int viewTop = viewItem.getTop();
+                    viewItem.layout(viewLeft, viewTop, viewLeft + viewItem.getMeasuredWidth(), viewTop + viewItem.getMeasuredHeight());
+                    viewItem.setPivotY(viewItem.getMeasuredHeight());
+                }
+            }
+            return;
+        }
+        layoutDirty = false;
+
+        for (int i = 0; i < childCount; i++) {
+            View viewItem = viewList.get(i);
+            // 1. 先layout出来
+            int childHeight = viewItem.getMeasuredHeight();
+            int viewLeft = (getWidth() - viewItem.getMeasuredWidth()) / 2;
+            viewItem.layout(viewLeft, itemMarginTop, viewLeft + viewItem.getMeasuredWidth(), itemMarginTop + childHeight);
+
+            // 2. 调整位置
+            int offset = yOffsetStep * i;
+            float scale = 1 - SCALE_STEP * i;
+            if (i >= visibleCount) {
+                // 备用的view，与最底层可见的view重叠
+                offset = yOffsetStep * (visibleCount - 1);
+                scale = 1 - SCALE_STEP * (visibleCount - 1);
+            }
+            viewItem.offsetTopAndBottom(offset);
+
+            // 3. 调整缩放、重心等
+            viewItem.setPivotY(viewItem.getMeasuredHeight());
+            viewItem.setPivotX(viewItem.getMeasuredWidth() / 2);
+            viewItem.setScaleX(scale);
+            viewItem.setScaleY(scale);
+        }
+
+        if (childCount > 0) {
+            // 初始化一些中间参数
+            initCenterViewX = viewList.get(0).getLeft();
+            initCenterViewY = viewList.get(0).getTop();
+            childWith = viewList.get(0).getMeasuredWidth();
+        }
+    }
+
+    public void setAdapter(final CardAdapter adapter) {
+        if (this.adapter == adapter) {
+            return;
+        }
+        if (null != this.adapter) {
+            // 换adapter：旧adapter的observer摘掉，旧数据绑定的卡片全部丢弃
+            unregisterCardDataObserver();
+            discardCards();
+            isShowing = 0;
+            clearHistory();
+            savedFirstItemData = null;
+            requestLayout();
+        }
+        this.adapter = adapter;
+        if (null == adapter) {
+            return;
+        }
+        if (asyncInflateEnabled) {
+            // 异步模式下尽早开始inflate，不必等到第一次layout
+            prewarmCardViews();
+        }
+        doBindAdapter();
+        registerCardDataObserver();
+        adapter.onCardShow(isShowing);
+    }
+
+    /**
+     * 数据整体变化，顶层卡片立即绑定，其余卡片推迟到后续帧
+     */
+    private void onAdapterDataChanged() {
+        // 飞出中的卡片先落地、重排，否则它的动画会在重排之后继续移动它
+        finishPendingVanish();
+
+        boolean reset = false;
+        boolean restored = false; // 本次跳到了恢复的位置
+        if (adapter.getCount() == 0) {
+            // 数据被清空，下次从头开始
+            cancelPrefetch();
+            isShowing = 0;
+            savedFirstItemData = null;
+        } else {
+            Object firstObj = adapter.getDataSetIdentity();
+            if (null == savedFirstItemData) {
+                // 此前就没有数据，需要保存第一条数据
+                savedFirstItemData = new WeakReference<>(firstObj);
+                isShowing = 0;
+            } else {
+                Object savedObj = savedFirstItemData.get();
+                if (firstObj != savedObj) {
+                    // 如果第一条数据不等的话，需要重置
+                    cancelPrefetch();
+                    isShowing = 0;
+                    reset = true;
+                    restoredShowing = -1;
+                    clearHistory();
+                    savedFirstItemData = new WeakReference<>(firstObj);
+                }
+            }
+            if (restoredShowing >= 0 && restoredShowing < adapter.getCount()) {
+                // 数据已经加载到恢复的位置（可能是分几次追加进来的），从该位置开始显示
+                restored = true;
+                isShowing = restoredShowing;
+                restoredShowing = -1;
+            }
+        }
+
+        int delay = 0;
+        for (int i = 0; i < viewList.size(); i++) {
+            CardItemView itemView = viewList.get(i);
+            if (isShowing + i < adapter.getCount()) {
+                boolean newShow = false;
+                if (itemView.getVisibility() == View.VISIBLE) {
+                    if (!reset && !restored) {
+                        continue;
+                    }
+                    newShow = restored && i == 0;
+                } else if (i == 0) {
+                    if (isShowing > 0 && !restored) {
+                        // 卡片已经全部滑完，新数据从末尾接上；刚跳到恢复的位置时isShowing已经是要显示的位置
+                        isShowing++;
+                    }
+                    newShow = true;
+                }
+                if (i >= visibleCount) {
+                    itemView.setAlpha(0);
+                    itemView.setVisibility(View.VISIBLE);
+                } else {
+                    itemView.setVisibilityWithAnimation(View.VISIBLE, delay++);
+                }
+                if (i == 0) {
+                    // 顶层卡片立即绑定，保证onShow时内容已就绪
+                    pendingBindViews.remove(itemView);
+                    bindCard(itemView, isShowing);
+                    if (newShow) {
+                        dispatchShow();
+                    }
+                } else {
+                    bindOrSchedule(itemView, i, isShowing + i);
+                }
+            } else {
+                pendingBindViews.remove(itemView);
+                itemView.setVisibility(View.INVISIBLE);
+                onPendingBindDone(itemView);
+            }
+        }
+        updatePrefetchWindow();
+    }
+
+    /**
+     * 部分数据内容改变，只重新绑定受影响的驻留卡片
+     */
+    private void onAdapterItemRangeChanged(int positionStart, int itemCount) {
+        int positionEnd = positionStart + itemCount;
+        for (int i = 0; i < viewList.size(); i++) {
+            int index = isShowing + i;
+            if (index >= positionStart && index < positionEnd && index < adapter.getCount()
+                    && viewList.get(i).getVisibility() == View.VISIBLE) {
+                if (i == 0) {
+                    pendingBindViews.remove(viewList.get(0));
+                    bindCard(viewList.get(0), index);
+                } else {
+                    bindOrSchedule(viewList.get(i), i, index);
+                }
+            }
+        }
+    }
+
+    /**
+     * 插入了数据：插在当前卡片之前的只调整isShowing，否则从受影响的位次开始重新绑定
+     */
+    private void onAdapterItemRangeInserted(int positionStart, int itemCount) {
+        finishPendingVanish();
+        if (restoredShowing >= 0) {
+            // 恢复后数据逐页加载回来，加载到恢复的位置时直接跳过去
+            if (restoredShowing < adapter.getCount()) {
+                applyRestoredShowing();
+            } else {
+                refreshResidentCards(0);
+            }
+            onRangeUpdated(positionStart);
+            return;
+        }
+        if (viewList.size() > 0 && viewList.get(0).getVisibility() != View.VISIBLE && isShowing > 0) {
+            // 卡片已经全部滑完，新数据从末尾接上
+            isShowing++;
+        }
+
+        if (positionStart <= isShowing) {
+            // 回退历史中的index已经失效
+            clearHistory();
+        }
+        if (positionStart < isShowing) {
+            isShowing += itemCount;
+        } else {
+            refreshResidentCards(positionStart - isShowing);
+        }
+        onRangeUpdated(positionStart);
+    }
+
+    /**
+     * 删除了数据：删在当前卡片之前的只调整isShowing，否则从受影响的位次开始重新绑定
+     */
+    private void onAdapterItemRangeRemoved(int positionStart, int itemCount) {
+        finishPendingVanish();
+        int positionEnd = positionStart + itemCount;
+        int count = adapter.getCount();
+        int fromSlot;
+        if (positionStart <= isShowing) {
+            clearHistory();
+        }
+        if (positionEnd <= isShowing) {
+            isShowing -= itemCount;
+            fromSlot = viewList.size();
+        } else if (positionStart < isShowing) {
+            // 当前卡片被删除，后续数据顶上来
+            isShowing = positionStart;
+            fromSlot = 0;
+        } else {
+            fromSlot = positionStart - isShowing;
+        }
+
+        if (isShowing >= count) {
+            isShowing = Math.max(0, count - 1);
+            fromSlot = 0;
+        }
+        refreshResidentCards(fromSlot);
+        onRangeUpdated(positionStart);
+    }
+
+    /**
+     * 从fromSlot位次开始，按isShowing重新绑定驻留卡片
+     */
+    private void refreshResidentCards(int fromSlot) {
+        int count = adapter.getCount();
+        int delay = 0;
+        for (int i = fromSlot; i < viewList.size(); i++) {
+            CardItemView itemView = viewList.get(i);
+            int index = isShowing + i;
+            if (index >= count) {
+                pendingBindViews.remove(itemView);
+                itemView.setVisibility(View.INVISIBLE);
+                onPendingBindDone(itemView);
+                continue;
             }
+
+            if (itemView.getVisibility() != View.VISIBLE) {
+                if (i >= visibleCount) {
+                    itemView.setAlpha(0);
+                    itemView.setVisibility(View.VISIBLE);
+                } else {
+                    itemView.setVisibilityWithAnimation(View.VISIBLE, delay++);
+                }
+            }
+            if (i == 0) {
+                pendingBindViews.remove(itemView);
+                bindCard(itemView, index);
+                dispatchShow();
+            } else {
+                bindOrSchedule(itemView, i, index);
+            }
+        }
+    }
+
+    /**
+     * 插入、删除之后，更新第一条数据的记录以及预加载窗口
+     */
+    private void onRangeUpdated(int positionStart) {
+        if (adapter.getCount() > 0) {
+            savedFirstItemData = new WeakReference<>(adapter.getDataSetIdentity());
+        } else {
+            savedFirstItemData = null;
+        }
+        if (positionStart < prefetchEnd) {
+            // 已预加载的index发生了偏移
+            cancelPrefetch();
+        }
+        updatePrefetchWindow();
+    }
+
+    /**
+     * 正在飞出的卡片直接落到终点并完成重排序
+     */
+    private void finishPendingVanish() {
+        for (int i = 0; i < releasedViewList.size(); i++) {
+            ((CardItemView) releasedViewList.get(i)).endExitAnimation();
+        }
+        for (int i = 0; i < viewList.size(); i++) {
+            viewList.get(i).endLinkageAnimation();
+        }
+        while (releasedViewList.size() > 0) {
             orderViewStack();
+        }
+    }
 
-            // 保存初次按下时arrowFlagView的Y坐标
-            // action_down时就让mDragHelper开始工作，否则有时候导致异常
-            mDragHelper.processTouchEvent(ev);
+    public CardAdapter getAdapter() {
+        return adapter;
+    }
+
+    /**
+     * 设置卡片层数
+     *
+     * @param visibleCount 可见的卡片层数，至少为1
+     * @param spareCount   底部备用的卡片数，至少为1
+     */
+    public void setStackDepth(int visibleCount, int spareCount) {
+        visibleCount = Math.max(1, visibleCount);
+        spareCount = Math.max(1, spareCount);
+        if (visibleCount == this.visibleCount && spareCount == this.spareCount) {
+            return;
         }
+        this.visibleCount = visibleCount;
+        this.spareCount = spareCount;
+
+        // 已经创建过的卡片全部丢弃，下一次layout时按新的层数重新绑定
+        discardCards();
+        contentPool.setMaxPerType(getViewCount());
+        snapshotPool.setMaxSize(getViewCount());
+        requestBindAdapter();
+        requestLayout();
+    }
 
-        return shouldIntercept && moveFlag;
+    /**
+     * 设置预加载的数量，驻留卡片之后的distance条数据会通过{@link CardAdapter#onPrefetch(int)}提前通知
+     */
+    public void setPrefetchDistance(int distance) {
+        this.prefetchDistance = Math.max(0, distance);
+        updatePrefetchWindow();
     }
 
-    @Override
-    public boolean onTouchEvent(MotionEvent e) {
-        try {
-            // 统一交给mDragHelper处理，由DragHelperCallback实现拖动效果
-            // 该行代码可能会抛异常，正式发布时请将这行代码加上try catch
-            mDragHelper.processTouchEvent(e);
-        } catch (Exception ex) {
-            ex.printStackTrace();
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+
+    public int getSpareCount() {
+        return spareCount;
+    }
+
+    /**
+     * 回退最近飞出的一张卡片：复用最底部的卡片View，从它飞出的一侧动画回到顶部
+     *
+     * @return 是否成功回退
+     */
+    public boolean rewind() {
+        if (null == adapter || historySize == 0 || viewList.size() == 0
+                || mDragHelper.getViewDragState() == ViewDragHelper.STATE_DRAGGING) {
+            return false;
+        }
+        finishPendingVanish();
+
+        // 1. 取出最近一条记录，数据已不存在（比如分页被丢弃）则无法回退
+        int last = (historyStart + historySize - 1) % historyIndexes.length;
+        int index = historyIndexes[last];
+        int type = historyTypes[last];
+        if (index >= adapter.getCount() || null == adapter.getItem(index)) {
+            clearHistory();
+            return false;
         }
+        historySize--;
+
+        // 2. 最底部的卡片View移到顶部，绑定回退的数据
+        CardItemView itemView = viewList.remove(viewList.size() - 1);
+        viewList.add(0, itemView);
+        refreshStackIndex();
+        LayoutParams lp = itemView.getLayoutParams();
+        removeViewInLayout(itemView);
+        addViewInLayout(itemView, -1, lp, true);
+
+        pendingBindViews.remove(itemView);
+        itemView.setVisibility(View.VISIBLE);
+        itemView.setAlpha(1);
+        itemView.setScaleX(1);
+        itemView.setScaleY(1);
+        bindCard(itemView, index);
+
+        // 3. 多出来的备用卡片隐藏
+        for (int i = visibleCount + 1; i < viewList.size(); i++) {
+            viewList.get(i).setAlpha(0);
+        }
+
+        // 4. 放到飞出的一侧，再用spring动画回到中间，联动会把下面的卡片推回各自的层级
+        int startX = type == VANISH_TYPE_LEFT ? -childWith : allWidth;
+        itemView.offsetLeftAndRight(startX - itemView.getLeft());
+        itemView.offsetTopAndBottom(initCenterViewY - itemView.getTop());
+        processLinkageView(itemView);
+        promoteLayers();
+        itemView.animTo(initCenterViewX, initCenterViewY);
+        invalidate();
+
+        isShowing = index;
+        updatePrefetchWindow();
+        dispatchShow();
         return true;
     }
 
-    @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        measureChildren(widthMeasureSpec, heightMeasureSpec);
-        int maxWidth = MeasureSpec.getSize(widthMeasureSpec);
-        int maxHeight = MeasureSpec.getSize(heightMeasureSpec);
-        setMeasuredDimension(
-                resolveSizeAndState(maxWidth, widthMeasureSpec, 0),
-                resolveSizeAndState(maxHeight, heightMeasureSpec, 0));
+    /**
+     * 设置可回退的最大步数，默认10
+     */
+    public void setRewindHistorySize(int maxSize) {
+        maxSize = Math.max(1, maxSize);
+        int[] indexes = new int[maxSize];
+        int[] types = new int[maxSize];
+        // 保留最近的记录
+        int keep = Math.min(historySize, maxSize);
+        for (int i = 0; i < keep; i++) {
+            int from = (historyStart + historySize - keep + i) % historyIndexes.length;
+            indexes[i] = historyIndexes[from];
+            types[i] = historyTypes[from];
+        }
+        historyIndexes = indexes;
+        historyTypes = types;
+        historyStart = 0;
+        historySize = keep;
+    }
 
-        allWidth = getMeasuredWidth();
-        allHeight = getMeasuredHeight();
+    public boolean canRewind() {
+        return historySize > 0;
     }
 
-    @Override
-    protected void onLayout(boolean changed, int left, int top, int right,
-                            int bottom) {
+    private void pushHistory(int index, int type) {
+        if (historySize == historyIndexes.length) {
+            // 满了，丢弃最早的一条
+            historyStart = (historyStart + 1) % historyIndexes.length;
+            historySize--;
+        }
+        int pos = (historyStart + historySize) % historyIndexes.length;
+        historyIndexes[pos] = index;
+        historyTypes[pos] = type;
+        historySize++;
+    }
 
-        int childCount = getChildCount();
-        for (int i = 0; i < childCount; i++) {
-            View viewItem = viewList.get(i);
-            // 1. 先layout出来
-            int childHeight = viewItem.getMeasuredHeight();
-            int viewLeft = (getWidth() - viewItem.getMeasuredWidth()) / 2;
-            viewItem.layout(viewLeft, itemMarginTop, viewLeft + viewItem.getMeasuredWidth(), itemMarginTop + childHeight);
+    private void clearHistory() {
+        historyStart = 0;
+        historySize = 0;
+    }
 
-            // 2. 调整位置
-            int offset = yOffsetStep * i;
-            float scale = 1 - SCALE_STEP * i;
-            if (i > 2) {
-                // 备用的view
-                offset = yOffsetStep * 2;
-                scale = 1 - SCALE_STEP * 2;
+    /**
+     * 拖动、动画开始，移动的卡片以及联动的卡片放到硬件层上
+     */
+    private void promoteLayers() {
+        if (!hardwareLayerEnabled || layerViews.size() > 0) {
+            return;
+        }
+        int count = Math.min(visibleCount + 1, viewList.size());
+        for (int i = 0; i < count; i++) {
+            CardItemView itemView = viewList.get(i);
+            itemView.acquireHardwareLayer();
+            layerViews.add(itemView);
+        }
+    }
+
+    /**
+     * 拖动、飞出、回弹都结束之后，撤掉硬件层
+     */
+    private void releaseLayers() {
+        if (layerViews.size() == 0
+                || mDragHelper.getViewDragState() != ViewDragHelper.STATE_IDLE
+                || !springSystem.getIsIdle() || releasedViewList.size() > 0) {
+            return;
+        }
+        for (int i = 0; i < layerViews.size(); i++) {
+            layerViews.get(i).releaseHardwareLayer();
+        }
+        layerViews.clear();
+    }
+
+    /**
+     * 设置是否在拖动、动画期间自动使用硬件层，默认开启
+     */
+    public void setHardwareLayerEnabled(boolean hardwareLayerEnabled) {
+        this.hardwareLayerEnabled = hardwareLayerEnabled;
+        if (!hardwareLayerEnabled) {
+            for (int i = 0; i < layerViews.size(); i++) {
+                layerViews.get(i).releaseHardwareLayer();
             }
-            viewItem.offsetTopAndBottom(offset);
+            layerViews.clear();
+        }
+    }
 
-            // 3. 调整缩放、重心等
-            viewItem.setPivotY(viewItem.getMeasuredHeight());
-            viewItem.setPivotX(viewItem.getMeasuredWidth() / 2);
-            viewItem.setScaleX(scale);
-            viewItem.setScaleY(scale);
+    public boolean isHardwareLayerEnabled() {
+        return hardwareLayerEnabled;
+    }
+
+    /**
+     * 驻留的卡片View总数
+     */
+    private int getViewCount() {
+        return visibleCount + spareCount;
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState ss = new SavedState(super.onSaveInstanceState());
+        // 正在飞出的卡片视为已经滑过，恢复后不再显示
+        int released = releasedViewList.size();
+        int showing = isShowing + released;
+        if (null != adapter && showing >= adapter.getCount()) {
+            showing = Math.max(isShowing, adapter.getCount() - 1);
         }
+        // 数据还没加载到恢复的位置，继续保留该位置
+        ss.showing = restoredShowing >= 0 ? restoredShowing : showing;
+
+        int size = Math.min(historySize + released, historyIndexes.length);
+        ss.historyIndexes = new int[size];
+        ss.historyTypes = new int[size];
+        int fromHistory = size - Math.min(released, size);
+        for (int i = 0; i < fromHistory; i++) {
+            int pos = (historyStart + historySize - fromHistory + i) % historyIndexes.length;
+            ss.historyIndexes[i] = historyIndexes[pos];
+            ss.historyTypes[i] = historyTypes[pos];
+        }
+        for (int i = fromHistory; i < size; i++) {
+            int slot = released - (size - i);
+            ss.historyIndexes[i] = isShowing + slot;
+            ss.historyTypes[i] = ((CardItemView) releasedViewList.get(slot)).getVanishType();
+        }
+        return ss;
+    }
 
-        if (childCount > 0) {
-            // 初始化一些中间参数
-            initCenterViewX = viewList.get(0).getLeft();
-            initCenterViewY = viewList.get(0).getTop();
-            childWith = viewList.get(0).getMeasuredWidth();
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+
+        clearHistory();
+        for (int i = 0; i < ss.historyIndexes.length; i++) {
+            pushHistory(ss.historyIndexes[i], ss.historyTypes[i]);
+        }
+
+        restoredShowing = ss.showing;
+        if (null != adapter && restoredShowing < adapter.getCount()) {
+            applyRestoredShowing();
         }
     }
 
-    public void setAdapter(final CardAdapter adapter) {
-        this.adapter = adapter;
-        doBindAdapter();
-        adapter.registerDataSetObserver(new DataSetObserver() {
+    /**
+     * 跳到恢复的位置，数据必须已经加载到该位置
+     */
+    private void applyRestoredShowing() {
+        int showing = restoredShowing;
+        restoredShowing = -1;
+        if (showing == isShowing) {
+            return;
+        }
+        isShowing = showing;
+        if (adapter.getCount() > 0) {
+            savedFirstItemData = new WeakReference<>(adapter.getDataSetIdentity());
+        }
+        if (viewList.size() > 0) {
+            // 卡片已经绑定过（恢复晚于第一次layout），按恢复的位置重新绑定驻留卡片
+            finishPendingVanish();
+            refreshResidentCards(0);
+            updatePrefetchWindow();
+            dispatchShow();
+        } else {
+            // 还没有layout，doBindAdapter会直接从恢复的位置开始绑定，滑过的卡片不再inflate、绑定
+            adapter.onCardShow(isShowing);
+        }
+    }
+
+    /**
+     * 保存当前显示的位置以及回退历史
+     */
+    static class SavedState extends BaseSavedState {
+        int showing;
+        int[] historyIndexes;
+        int[] historyTypes;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            showing = in.readInt();
+            historyIndexes = in.createIntArray();
+            historyTypes = in.createIntArray();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(showing);
+            out.writeIntArray(historyIndexes);
+            out.writeIntArray(historyTypes);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
             @Override
-            public void onChanged() {
-                orderViewStack();
-
-                boolean reset = false;
-                if (adapter.getCount() > 0) {
-                    Object firstObj = adapter.getItem(0);
-                    if (null == savedFirstItemData) {
-                        // 此前就没有数据，需要保存第一条数据
-                        savedFirstItemData = new WeakReference<>(firstObj);
-                        isShowing = 0;
-                    } else {
-                        Object savedObj = savedFirstItemData.get();
-                        if (firstObj != savedObj) {
-                            // 如果第一条数据不等的话，需要重置
-                            isShowing = 0;
-                            reset = true;
-                            savedFirstItemData = new WeakReference<>(firstObj);
-                        }
-                    }
-                }
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
 
-                int delay = 0;
-                for (int i = 0; i < VIEW_COUNT; i++) {
-                    CardItemView itemView = viewList.get(i);
-                    if (isShowing + i < adapter.getCount()) {
-                        if (itemView.getVisibility() == View.VISIBLE) {
-                            if (!reset) {
-                                continue;
-                            }
-                        } else if (i == 0) {
-                            if (isShowing > 0) {
-                                isShowing++;
-                            }
-                            cardSwitchListener.onShow(isShowing);
-                        }
-                        if (i == VIEW_COUNT - 1) {
-                            itemView.setAlpha(0);
-                            itemView.setVisibility(View.VISIBLE);
-                        } else {
-                            itemView.setVisibilityWithAnimation(View.VISIBLE, delay++);
-                        }
-                        adapter.bindView(itemView, isShowing + i);
-                    } else {
-                        itemView.setVisibility(View.INVISIBLE);
-                    }
-                }
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
             }
-        });
+        };
     }
 
-    public CardAdapter getAdapter() {
-        return adapter;
+    /**
+     * 设置是否允许在前一张卡片飞出期间直接拖动下一张：开启后飞出动画不会被打断，
+     * 每张卡片飞完之后再各自重排、绑定
+     */
+    public void setConcurrentSwipeEnabled(boolean concurrentSwipeEnabled) {
+        this.concurrentSwipeEnabled = concurrentSwipeEnabled;
+    }
+
+    public boolean isConcurrentSwipeEnabled() {
+        return concurrentSwipeEnabled;
+    }
+
+    /**
+     * 设置快照模式：顶层以外的卡片绘制缩小的Bitmap快照，快照只在bindView之后重新生成，
+     * 卡片成为顶层时切回完整的View。内容异步变化时请调用{@link CardItemView#invalidateSnapshot()}；
+     * SurfaceView、TextureView等无法绘制到Bitmap上的内容不适用
+     */
+    public void setSnapshotEnabled(boolean snapshotEnabled) {
+        if (this.snapshotEnabled == snapshotEnabled) {
+            return;
+        }
+        this.snapshotEnabled = snapshotEnabled;
+        if (!snapshotEnabled) {
+            for (int i = 0; i < viewList.size(); i++) {
+                viewList.get(i).releaseSnapshot();
+                viewList.get(i).invalidate();
+            }
+            snapshotPool.clear();
+        } else {
+            invalidateSnapshotState();
+        }
+    }
+
+    public boolean isSnapshotEnabled() {
+        return snapshotEnabled;
+    }
+
+    /**
+     * 设置快照相对卡片的缩放比例，默认0.5
+     */
+    public void setSnapshotScale(float snapshotScale) {
+        this.snapshotScale = Math.max(0.1f, Math.min(1f, snapshotScale));
+        for (int i = 0; i < viewList.size(); i++) {
+            viewList.get(i).invalidateSnapshot();
+        }
+    }
+
+    /**
+     * 设置飞出动画的模式
+     *
+     * @param exitMode {@link #EXIT_MODE_OFFSET}（默认）或{@link #EXIT_MODE_PROPERTY}：
+     *                 属性模式下飞出、下层卡片靠拢都只改变View属性，每帧不再重新摆放卡片、计算联动，
+     *                 硬件加速时只更新RenderNode属性，每帧的主线程工作量更小；
+     *                 动画仍由主线程的ValueAnimator驱动，主线程卡顿时飞行中的卡片同样会停顿
+     */
+    public void setExitMode(int exitMode) {
+        this.exitMode = exitMode;
+    }
+
+    public int getExitMode() {
+        return exitMode;
+    }
+
+    /**
+     * 设置拖动轨迹的跟踪模式
+     *
+     * @param dragTrackingMode {@link #DRAG_TRACKING_DEFAULT}（默认）、{@link #DRAG_TRACKING_HISTORICAL}
+     *                         或{@link #DRAG_TRACKING_PREDICTIVE}
+     */
+    public void setDragTrackingMode(int dragTrackingMode) {
+        this.dragTrackingMode = dragTrackingMode;
+        frameIntervalSeconds = 0;
+    }
+
+    public int getDragTrackingMode() {
+        return dragTrackingMode;
+    }
+
+    /**
+     * 设置飞出引擎，为null时恢复默认的{@link FlingExitEngine}
+     */
+    public void setExitEngine(CardExitEngine exitEngine) {
+        this.exitEngine = null == exitEngine ? new FlingExitEngine() : exitEngine;
+    }
+
+    public CardExitEngine getExitEngine() {
+        return exitEngine;
+    }
+
+    /**
+     * 设置卡片轻点回调
+     */
+    public void setCardTapListener(CardTapListener cardTapListener) {
+        this.cardTapListener = cardTapListener;
     }
 
     /**
@@ -597,6 +2287,48 @@ public class CardSlidePanel extends ViewGroup {
         this.cardSwitchListener = cardSwitchListener;
     }
 
+    /**
+     * 设置性能数据回调，每张卡片飞出结束后回调一次，为null时不做任何统计
+     */
+    public void setSwipeMetricsListener(SwipeMetricsListener swipeMetricsListener) {
+        this.swipeMetricsListener = swipeMetricsListener;
+        for (int i = 0; i < viewList.size(); i++) {
+            viewList.get(i).getSwipeMetrics().reset();
+        }
+    }
+
+    /**
+     * 设置单帧预算，与上一帧间隔超过预算（留半帧余量）的帧计入{@link SwipeMetrics#getFramesOverBudget()}，默认16.67ms
+     */
+    public void setFrameBudgetMs(float frameBudgetMs) {
+        frameBudgetNanos = (long) (frameBudgetMs * 1000000);
+    }
+
+    /**
+     * 卡片轻点回调接口
+     */
+    public interface CardTapListener {
+        /**
+         * 顶层卡片被轻点（按下后没有拖动就抬起）
+         *
+         * @param index 被点击的卡片数据index
+         * @param zone  按下时所在的区域，参见{@link CardHitRegions}
+         */
+        public void onCardTap(int index, int zone);
+    }
+
+    /**
+     * 性能数据回调接口
+     */
+    public interface SwipeMetricsListener {
+        /**
+         * 一张卡片飞出结束：重排完成，并且它沉到底部后推迟的bindView也已完成
+         *
+         * @param metrics 本次滑动的性能数据，对象会被复用，回调之外请勿持有
+         */
+        public void onSwipeMetrics(SwipeMetrics metrics);
+    }
+
     /**
      * 卡片回调接口
      */
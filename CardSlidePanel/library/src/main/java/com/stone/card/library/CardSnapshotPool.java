@@ -0,0 +1,59 @@
+package com.stone.card.library;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 卡片快照Bitmap的回收池，数量有上限，超出的直接recycle
+ *
+ * @author xmuSistone
+ */
+final class CardSnapshotPool {
+
+    private final List<Bitmap> bitmaps = new ArrayList<>();
+    private int maxSize;
+
+    CardSnapshotPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        while (bitmaps.size() > maxSize) {
+            bitmaps.remove(bitmaps.size() - 1).recycle();
+        }
+    }
+
+    /**
+     * 取出一张尺寸相同的Bitmap并清空，没有则新建
+     */
+    Bitmap acquire(int width, int height) {
+        for (int i = bitmaps.size() - 1; i >= 0; i--) {
+            Bitmap bitmap = bitmaps.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                bitmaps.remove(i);
+                bitmap.eraseColor(Color.TRANSPARENT);
+                return bitmap;
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    void release(Bitmap bitmap) {
+        if (bitmaps.size() < maxSize) {
+            bitmaps.add(bitmap);
+        } else {
+            bitmap.recycle();
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < bitmaps.size(); i++) {
+            bitmaps.get(i).recycle();
+        }
+        bitmaps.clear();
+    }
+}
@@ -0,0 +1,106 @@
+package com.stone.card.library;
+
+/**
+ * 卡片堆叠联动、松手飞出的纯数学计算，不依赖任何View，便于在JVM上测试
+ *
+ * @author xmuSistone
+ */
+final class CardStackMath {
+
+    static final int MAX_SLIDE_DISTANCE_LINKAGE = 500; // 水平距离+垂直距离
+    static final int X_VEL_THRESHOLD = 800;
+    static final int X_DISTANCE_THRESHOLD = 300;
+    static final float XY_RATE = 3f; // yvel < xvel * xyRate则允许以速度计算偏移
+
+    private CardStackMath() {
+    }
+
+    /**
+     * 顶层卡片偏离中心的距离对应的联动比例
+     */
+    static float linkageRate(int distance) {
+        return distance / (float) MAX_SLIDE_DISTANCE_LINKAGE;
+    }
+
+    /**
+     * 第level层卡片的联动比例，每深一层延后0.1
+     */
+    static float levelRate(float rate, int level) {
+        float levelRate = rate - 0.1f * (level - 1);
+        if (levelRate < 0) {
+            levelRate = 0;
+        } else if (levelRate > 1) {
+            levelRate = 1;
+        }
+        return levelRate;
+    }
+
+    /**
+     * 第level层卡片向level-1层靠拢时的垂直偏移
+     */
+    static int linkageOffset(int yOffsetStep, int level, float rate) {
+        int initPosY = yOffsetStep * level;
+        int nextPosY = yOffsetStep * (level - 1);
+        return (int) (initPosY + (nextPosY - initPosY) * rate);
+    }
+
+    /**
+     * 第level层卡片向level-1层靠拢时的缩放
+     */
+    static float linkageScale(float scaleStep, int level, float rate) {
+        float initScale = 1 - scaleStep * level;
+        float nextScale = 1 - scaleStep * (level - 1);
+        return initScale + (nextScale - initScale) * rate;
+    }
+
+    /**
+     * 计算松手后卡片的去向
+     *
+     * @param outPos 输出最终位置，outPos[0]为finalX，outPos[1]为finalY
+     * @return 飞向哪一侧{@link CardSlidePanel#VANISH_TYPE_LEFT}或{@link CardSlidePanel#VANISH_TYPE_RIGHT}，-1表示回到中间
+     */
+    static int computeVanishTarget(int left, int top, int initCenterX, int initCenterY,
+                                   int xvel, int yvel, int childWidth,
+                                   int allWidth, int allHeight, int[] outPos) {
+        int finalX = initCenterX;
+        int finalY = initCenterY;
+        int flyType = -1;
+
+        // 下面这一坨计算finalX和finalY，要读懂代码需要建立一个比较清晰的数学模型才能理解，不信拉倒
+        int dx = left - initCenterX;
+        int dy = top - initCenterY;
+
+        if (xvel > X_VEL_THRESHOLD && Math.abs(yvel) < xvel * XY_RATE) {
+            // x正方向的速度足够大，向右滑动消失
+            finalX = allWidth;
+            finalY = yvel * (childWidth + left) / xvel + top;
+            flyType = CardSlidePanel.VANISH_TYPE_RIGHT;
+        } else if (xvel < -X_VEL_THRESHOLD && Math.abs(yvel) < -xvel * XY_RATE) {
+            // x负方向的速度足够大，向左滑动消失
+            finalX = -childWidth;
+            finalY = yvel * (childWidth + left) / (-xvel) + top;
+            flyType = CardSlidePanel.VANISH_TYPE_LEFT;
+        } else if (dx > X_DISTANCE_THRESHOLD && Math.abs(dy) < dx * XY_RATE) {
+            // x正方向的位移足够大，向右滑动消失
+            finalX = allWidth;
+            finalY = dy * (childWidth + initCenterX) / dx + initCenterY;
+            flyType = CardSlidePanel.VANISH_TYPE_RIGHT;
+        } else if (dx < -X_DISTANCE_THRESHOLD && Math.abs(dy) < -dx * XY_RATE) {
+            // x负方向的位移足够大，向左滑动消失
+            finalX = -childWidth;
+            finalY = dy * (childWidth + initCenterX) / (-dx) + initCenterY;
+            flyType = CardSlidePanel.VANISH_TYPE_LEFT;
+        }
+
+        // 如果斜率太高，就折中处理
+        if (finalY > allHeight) {
+            finalY = allHeight;
+        } else if (finalY < -allHeight / 2) {
+            finalY = -allHeight / 2;
+        }
+
+        outPos[0] = finalX;
+        outPos[1] = finalY;
+        return flyType;
+    }
+}
@@ -0,0 +1,120 @@
+package com.stone.card.library;
+
+import android.view.MotionEvent;
+
+/**
+ * 拖动轨迹采样：记录包括历史采样点在内的所有触摸点，用最小二乘拟合最近一段时间的速度，
+ * 并可按速度预测下一帧的手指位置
+ *
+ * @author xmuSistone
+ */
+final class DragTracker {
+
+    private static final int MAX_SAMPLES = 32;
+    private static final long VELOCITY_WINDOW_MS = 80; // 参与拟合速度的时间窗口
+    private static final long MAX_SAMPLE_GAP_MS = 40; // 超过该时长没有移动，视为手指已停住
+
+    private final float[] sampleX = new float[MAX_SAMPLES];
+    private final float[] sampleY = new float[MAX_SAMPLES];
+    private final long[] sampleTime = new long[MAX_SAMPLES];
+    private int start = 0, size = 0;
+    private int pointerId = -1; // 只跟踪第一根手指
+
+    void reset() {
+        start = 0;
+        size = 0;
+        pointerId = -1;
+    }
+
+    void addMovement(MotionEvent ev) {
+        int action = ev.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN) {
+            reset();
+            pointerId = ev.getPointerId(0);
+        }
+        int pointerIndex = ev.findPointerIndex(pointerId);
+        if (pointerIndex < 0) {
+            return;
+        }
+
+        // 一个MotionEvent里可能批量带着上一帧以来的多个采样点
+        int historySize = ev.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            addSample(ev.getHistoricalX(pointerIndex, h), ev.getHistoricalY(pointerIndex, h),
+                    ev.getHistoricalEventTime(h));
+        }
+        addSample(ev.getX(pointerIndex), ev.getY(pointerIndex), ev.getEventTime());
+    }
+
+    void addSample(float x, float y, long timeMs) {
+        int pos;
+        if (size < MAX_SAMPLES) {
+            pos = (start + size) % MAX_SAMPLES;
+            size++;
+        } else {
+            pos = start;
+            start = (start + 1) % MAX_SAMPLES;
+        }
+        sampleX[pos] = x;
+        sampleY[pos] = y;
+        sampleTime[pos] = timeMs;
+    }
+
+    /**
+     * 对最近VELOCITY_WINDOW_MS内的采样点做线性拟合，计算速度
+     *
+     * @param outVelocity 输出速度，单位像素/秒，outVelocity[0]为x方向，outVelocity[1]为y方向
+     * @return 采样点不足时返回false
+     */
+    boolean computeVelocity(float[] outVelocity) {
+        outVelocity[0] = 0;
+        outVelocity[1] = 0;
+        if (size < 2) {
+            return false;
+        }
+        int newest = (start + size - 1) % MAX_SAMPLES;
+        long newestTime = sampleTime[newest];
+
+        // 1. 取时间窗口内的采样点，遇到较长的停顿就截断
+        int count = 1;
+        long lastTime = newestTime;
+        for (int i = size - 2; i >= 0; i--) {
+            long time = sampleTime[(start + i) % MAX_SAMPLES];
+            if (newestTime - time > VELOCITY_WINDOW_MS || lastTime - time > MAX_SAMPLE_GAP_MS) {
+                break;
+            }
+            lastTime = time;
+            count++;
+        }
+        if (count < 2) {
+            return true;
+        }
+
+        // 2. 最小二乘：x = a + vx * t，y = b + vy * t
+        float meanT = 0, meanX = 0, meanY = 0;
+        for (int i = size - count; i < size; i++) {
+            int pos = (start + i) % MAX_SAMPLES;
+            meanT += (sampleTime[pos] - newestTime) / 1000f;
+            meanX += sampleX[pos];
+            meanY += sampleY[pos];
+        }
+        meanT /= count;
+        meanX /= count;
+        meanY /= count;
+
+        float stt = 0, stx = 0, sty = 0;
+        for (int i = size - count; i < size; i++) {
+            int pos = (start + i) % MAX_SAMPLES;
+            float dt = (sampleTime[pos] - newestTime) / 1000f - meanT;
+            stt += dt * dt;
+            stx += dt * (sampleX[pos] - meanX);
+            sty += dt * (sampleY[pos] - meanY);
+        }
+        if (stt <= 0) {
+            return true;
+        }
+        outVelocity[0] = stx / stt;
+        outVelocity[1] = sty / stt;
+        return true;
+    }
+}
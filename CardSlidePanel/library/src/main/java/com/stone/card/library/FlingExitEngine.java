@@ -0,0 +1,42 @@
+package com.stone.card.library;
+
+/**
+ * 默认的飞出引擎：去向沿用速度、位移阈值的判断，终点为卡片刚好完全离开面板的位置，
+ * 动画以松手时的速度开始减速，快速甩出的卡片会更快结束
+ *
+ * @author xmuSistone
+ */
+public class FlingExitEngine implements CardExitEngine {
+
+    private float minVelocity = 2000; // 速度不足时（按位移判定飞出、按钮触发）按该速度飞出，单位像素/秒
+    private long minDuration = 100; // 最短动画时长，单位毫秒
+    private long maxDuration = 400; // 最长动画时长，单位毫秒
+
+    @Override
+    public int computeTarget(int left, int top, int initLeft, int initTop, float xvel, float yvel,
+                             int childWidth, int panelWidth, int panelHeight, int[] outTarget) {
+        return CardStackMath.computeVanishTarget(left, top, initLeft, initTop, (int) xvel, (int) yvel,
+                childWidth, panelWidth, panelHeight, outTarget);
+    }
+
+    @Override
+    public long computeDuration(int fromX, int fromY, int toX, int toY, float xvel, float yvel) {
+        float distance = (float) Math.hypot(toX - fromX, toY - fromY);
+        float velocity = Math.max(minVelocity, (float) Math.hypot(xvel, yvel));
+        // 减速插值的起始速度为 2 * distance / duration，与松手速度衔接
+        long duration = (long) (2000 * distance / velocity);
+        return Math.max(minDuration, Math.min(maxDuration, duration));
+    }
+
+    public void setMinVelocity(float minVelocity) {
+        this.minVelocity = Math.max(1, minVelocity);
+    }
+
+    /**
+     * 设置动画时长的范围，单位毫秒
+     */
+    public void setDurationRange(long minDuration, long maxDuration) {
+        this.minDuration = Math.max(0, minDuration);
+        this.maxDuration = Math.max(this.minDuration, maxDuration);
+    }
+}
@@ -0,0 +1,190 @@
+package com.stone.card.library;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分页加载的Adapter：快滑到末尾时自动加载下一页，已滑过的页按窗口丢弃，
+ * 数据index始终是全局的，不会因为丢弃而改变
+ *
+ * @author xmuSistone
+ */
+public abstract class PagedCardAdapter<T> extends CardAdapter {
+
+    private final int pageSize; // 每页数据条数
+    private int loadThreshold; // 剩余未显示的数据少于该值时加载下一页
+    private int retainedPageCount = 1; // 当前页之前保留的已滑过的页数
+
+    private final List<T> items = new ArrayList<>(); // 内存中的数据，从droppedCount开始
+    private int droppedCount = 0; // 已丢弃的数据条数
+    private int nextPage = 0; // 下一页的页码
+    private boolean loading = false;
+    private boolean hasMore = true;
+    private int generation = 0; // reset之后，之前发出的加载请求作废
+    private Object dataSetIdentity = new Object(); // 丢弃前面的页不改变标识，只有reset才换新的
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public PagedCardAdapter(int pageSize) {
+        this.pageSize = Math.max(1, pageSize);
+        this.loadThreshold = this.pageSize / 2;
+    }
+
+    /**
+     * 加载一页数据，调用者必须实现，在主线程调用；
+     * 加载完成后可以在任意线程回调callback
+     *
+     * @param page 页码，从0开始
+     */
+    protected abstract void onLoadPage(int page, int pageSize, LoadCallback<T> callback);
+
+    @Override
+    public final int getCount() {
+        return droppedCount + items.size();
+    }
+
+    @Override
+    public final Object getItem(int index) {
+        return getData(index);
+    }
+
+    /**
+     * 获取数据，已被丢弃的index返回null
+     */
+    public T getData(int index) {
+        int position = index - droppedCount;
+        if (position < 0 || position >= items.size()) {
+            return null;
+        }
+        return items.get(position);
+    }
+
+    /**
+     * 第一页被丢弃后getItem(0)为null，不能再用第一条数据判断数据集是否被替换
+     */
+    @Override
+    Object getDataSetIdentity() {
+        return dataSetIdentity;
+    }
+
+    @Override
+    public void onCardShow(int index) {
+        // 1. 快到末尾了，加载下一页
+        if (index >= getCount() - loadThreshold) {
+            loadNextPage();
+        }
+
+        // 2. 丢弃当前页之前超出保留窗口的整页数据
+        while ((index - droppedCount) / pageSize > retainedPageCount && items.size() >= pageSize) {
+            items.subList(0, pageSize).clear();
+            droppedCount += pageSize;
+        }
+    }
+
+    private void loadNextPage() {
+        if (loading || !hasMore) {
+            return;
+        }
+        loading = true;
+        final int requestGeneration = generation;
+        onLoadPage(nextPage, pageSize, new LoadCallback<T>() {
+            @Override
+            public void onPageLoaded(final List<T> page) {
+                runOnMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (requestGeneration == generation) {
+                            appendPage(page);
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onPageFailed() {
+                runOnMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (requestGeneration == generation) {
+                            loading = false;
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void appendPage(List<T> page) {
+        loading = false;
+        nextPage++;
+        int size = null == page ? 0 : page.size();
+        if (size < pageSize) {
+            // 不满一页，说明没有更多数据了
+            hasMore = false;
+        }
+        if (size > 0) {
+            int positionStart = getCount();
+            items.addAll(page);
+            notifyItemRangeInserted(positionStart, size);
+        }
+    }
+
+    private void runOnMainThread(Runnable runnable) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            runnable.run();
+        } else {
+            mainHandler.post(runnable);
+        }
+    }
+
+    /**
+     * 清空所有数据，从第一页重新加载
+     */
+    public void reset() {
+        generation++;
+        dataSetIdentity = new Object();
+        items.clear();
+        droppedCount = 0;
+        nextPage = 0;
+        loading = false;
+        hasMore = true;
+        notifyDataSetChanged();
+        loadNextPage();
+    }
+
+    /**
+     * 剩余未显示的数据少于threshold时加载下一页，默认为半页
+     */
+    public void setLoadThreshold(int loadThreshold) {
+        this.loadThreshold = Math.max(0, loadThreshold);
+    }
+
+    /**
+     * 当前页之前保留的已滑过的页数，更早的页会被丢弃，默认为1
+     */
+    public void setRetainedPageCount(int retainedPageCount) {
+        this.retainedPageCount = Math.max(0, retainedPageCount);
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * 分页加载回调
+     */
+    public interface LoadCallback<T> {
+        /**
+         * 加载成功，page条数少于pageSize表示没有更多数据
+         */
+        public void onPageLoaded(List<T> page);
+
+        /**
+         * 加载失败，下次显示新卡片时会重试
+         */
+        public void onPageFailed();
+    }
+}
@@ -0,0 +1,139 @@
+package com.stone.card.library;
+
+/**
+ * 单次滑动（一张卡片飞出）的性能数据，对象会被复用，回调之外请勿持有
+ *
+ * @author xmuSistone
+ */
+public class SwipeMetrics {
+
+    private static final long NANOS_PER_MS = 1000000L;
+
+    private long frameBudgetNanos = 16666667L; // 单帧预算，默认60fps
+
+    /* 统计结果 */
+    private long dragDurationNanos; // 拖动时长，按钮触发时为0
+    private long settleDurationNanos; // 松手到飞出动画结束、卡片重排完成的时长
+    private int framesRendered; // 拖动+消失动画期间的帧数，按Choreographer的帧回调计数
+    private int framesOverBudget; // 与上一帧的间隔超过单帧预算的帧数
+    private long orderStackNanos; // orderViewStack耗时，包含其中的bindView
+    private long bindNanos; // adapter.bindView耗时，包括重排后推迟到后续帧的、这张卡片自己的绑定
+
+    /* 统计过程中的时间点 */
+    private long dragStartNanos;
+    private long settleStartNanos;
+    private long lastFrameNanos;
+    private boolean awaitingBind; // 已经重排完，等待推迟的绑定完成后再回调
+
+    void setFrameBudgetNanos(long frameBudgetNanos) {
+        this.frameBudgetNanos = frameBudgetNanos;
+    }
+
+    void onDragStart() {
+        reset();
+        dragStartNanos = System.nanoTime();
+    }
+
+    /**
+     * 卡片开始飞出，拖动结束、消失动画开始
+     */
+    void onSettleStart() {
+        long now = System.nanoTime();
+        if (dragStartNanos > 0) {
+            dragDurationNanos = now - dragStartNanos;
+        } else {
+            // 按钮触发，没有拖动过程
+            reset();
+        }
+        settleStartNanos = now;
+    }
+
+    /**
+     * 新的一帧，与上一帧的间隔超过预算半帧以上说明至少错过了一个vsync
+     *
+     * @param frameTimeNanos Choreographer回调的帧时间
+     */
+    void onFrame(long frameTimeNanos) {
+        if (!isActive()) {
+            return;
+        }
+        framesRendered++;
+        if (lastFrameNanos > 0 && frameTimeNanos - lastFrameNanos > frameBudgetNanos + frameBudgetNanos / 2) {
+            framesOverBudget++;
+        }
+        lastFrameNanos = frameTimeNanos;
+    }
+
+    /**
+     * 是否正在统计（拖动中或者飞出中）
+     */
+    boolean isActive() {
+        return (dragStartNanos > 0 || settleStartNanos > 0) && !awaitingBind;
+    }
+
+    void setAwaitingBind(boolean awaitingBind) {
+        this.awaitingBind = awaitingBind;
+    }
+
+    boolean isAwaitingBind() {
+        return awaitingBind;
+    }
+
+    void addOrderStackNanos(long nanos) {
+        orderStackNanos += nanos;
+    }
+
+    void addBindNanos(long nanos) {
+        bindNanos += nanos;
+    }
+
+    /**
+     * 消失动画结束
+     *
+     * @return 本次统计是否有效（确实经历过飞出过程）
+     */
+    boolean onSettleEnd() {
+        if (settleStartNanos == 0) {
+            return false;
+        }
+        settleDurationNanos = System.nanoTime() - settleStartNanos;
+        return true;
+    }
+
+    void reset() {
+        dragDurationNanos = 0;
+        settleDurationNanos = 0;
+        framesRendered = 0;
+        framesOverBudget = 0;
+        orderStackNanos = 0;
+        bindNanos = 0;
+        dragStartNanos = 0;
+        settleStartNanos = 0;
+        lastFrameNanos = 0;
+        awaitingBind = false;
+    }
+
+    public long getDragDurationMs() {
+        return dragDurationNanos / NANOS_PER_MS;
+    }
+
+    public long getSettleDurationMs() {
+        return settleDurationNanos / NANOS_PER_MS;
+    }
+
+    public int getFramesRendered() {
+        return framesRendered;
+    }
+
+    public int getFramesOverBudget() {
+        return framesOverBudget;
+    }
+
+    public long getOrderStackNanos() {
+        return orderStackNanos;
+    }
+
+    public long getBindNanos() {
+        return bindNanos;
+    }
+}
@@ -0,0 +1,69 @@
+package com.stone.card.library;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * CardStackMath的正确性校验，JVM本地运行
+ */
+public class CardStackMathTest {
+
+    private static final int INIT_X = 40;
+    private static final int INIT_Y = 30;
+    private static final int CHILD_WIDTH = 1000;
+    private static final int ALL_WIDTH = 1080;
+    private static final int ALL_HEIGHT = 1600;
+
+    private final int[] outPos = new int[2];
+
+    @Test
+    public void levelRate_isClampedAndDelayedPerLevel() throws Exception {
+        assertEquals(0.5f, CardStackMath.levelRate(0.5f, 1), 1e-6f);
+        assertEquals(0.4f, CardStackMath.levelRate(0.5f, 2), 1e-6f);
+        assertEquals(0f, CardStackMath.levelRate(0.05f, 2), 1e-6f);
+        assertEquals(1f, CardStackMath.levelRate(1.5f, 1), 1e-6f);
+        assertEquals(1f, CardStackMath.levelRate(1.5f, 3), 1e-6f);
+    }
+
+    @Test
+    public void linkage_movesLevelTowardsUpperLevel() throws Exception {
+        assertEquals(80, CardStackMath.linkageOffset(40, 2, 0f));
+        assertEquals(40, CardStackMath.linkageOffset(40, 2, 1f));
+        assertEquals(0.84f, CardStackMath.linkageScale(0.08f, 2, 0f), 1e-6f);
+        assertEquals(0.92f, CardStackMath.linkageScale(0.08f, 2, 1f), 1e-6f);
+    }
+
+    @Test
+    public void vanishTarget_backToCenterWhenSlowAndNear() throws Exception {
+        int flyType = CardStackMath.computeVanishTarget(INIT_X + 100, INIT_Y + 20, INIT_X, INIT_Y,
+                200, 0, CHILD_WIDTH, ALL_WIDTH, ALL_HEIGHT, outPos);
+        assertEquals(-1, flyType);
+        assertEquals(INIT_X, outPos[0]);
+        assertEquals(INIT_Y, outPos[1]);
+    }
+
+    @Test
+    public void vanishTarget_flingRightByVelocity() throws Exception {
+        int flyType = CardStackMath.computeVanishTarget(INIT_X + 50, INIT_Y, INIT_X, INIT_Y,
+                2000, 0, CHILD_WIDTH, ALL_WIDTH, ALL_HEIGHT, outPos);
+        assertEquals(CardSlidePanel.VANISH_TYPE_RIGHT, flyType);
+        assertEquals(ALL_WIDTH, outPos[0]);
+        assertEquals(INIT_Y, outPos[1]);
+    }
+
+    @Test
+    public void vanishTarget_flyLeftByDistance() throws Exception {
+        int flyType = CardStackMath.computeVanishTarget(INIT_X - 400, INIT_Y, INIT_X, INIT_Y,
+                0, 0, CHILD_WIDTH, ALL_WIDTH, ALL_HEIGHT, outPos);
+        assertEquals(CardSlidePanel.VANISH_TYPE_LEFT, flyType);
+        assertEquals(-CHILD_WIDTH, outPos[0]);
+    }
+
+    @Test
+    public void vanishTarget_clampsSteepSlope() throws Exception {
+        CardStackMath.computeVanishTarget(INIT_X + 400, INIT_Y + 1000, INIT_X, INIT_Y,
+                0, 0, CHILD_WIDTH, ALL_WIDTH, ALL_HEIGHT, outPos);
+        assertEquals(ALL_HEIGHT, outPos[1]);
+    }
+}